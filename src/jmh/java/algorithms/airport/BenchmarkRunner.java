@@ -0,0 +1,20 @@
+package algorithms.airport;
+
+import org.openjdk.jmh.Main;
+
+import java.util.Arrays;
+
+/**
+ * Runs the benchmarks with the GC profiler so every result reports its allocation rate. <br>
+ * Accepts the usual JMH command line options, for example a benchmark name pattern
+ * or -p island=data500 to select a single data set.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        final String[] withProfiler = Arrays.copyOf(new String[]{"-prof", "gc"}, args.length + 2);
+        System.arraycopy(args, 0, withProfiler, 2, args.length);
+
+        Main.main(withProfiler);
+    }
+}
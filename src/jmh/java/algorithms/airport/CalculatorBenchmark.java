@@ -0,0 +1,40 @@
+package algorithms.airport;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a full runway calculation over the bundled data sets and a generated island
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalculatorBenchmark {
+
+    @Param({"data13", "data56", "data113", "data148", "data200", "data500", "star-1000"})
+    public String island;
+
+    @Param({"false", "true"})
+    public boolean pruning;
+
+    private AirportCalculator calculator;
+
+    @Setup
+    public void setup() throws IOException {
+        final Island poly = Polygons.load(island);
+        poly.buildEdgeIndex();
+
+        calculator = new AirportCalculator(poly);
+        calculator.setPruning(pruning);
+    }
+
+    @Benchmark
+    public Runway calculate() {
+        return calculator.calculate();
+    }
+}
@@ -0,0 +1,50 @@
+package algorithms.airport;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the segment intersection and crossing kernels
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GeometryBenchmark {
+
+    private static final int LINES = 1024;
+
+    /**
+     * Line i runs from (lines[4i], lines[4i + 1]) to (lines[4i + 2], lines[4i + 3])
+     */
+    private final double[] lines = new double[LINES * 4];
+    private final double[] point = new double[2];
+    private int next;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(11);
+        for (int i = 0; i < lines.length; i++)
+            lines[i] = random.nextInt(1000);
+    }
+
+    @Benchmark
+    public boolean intersection() {
+        final int a = (next++ & (LINES - 1)) * 4;
+        final int b = (a + 4) & (LINES * 4 - 1);
+        return Geometry.intersection(lines[a], lines[a + 1], lines[a + 2], lines[a + 3],
+                lines[b], lines[b + 1], lines[b + 2], lines[b + 3], point, 0);
+    }
+
+    @Benchmark
+    public boolean doLinesCross() {
+        final int a = (next++ & (LINES - 1)) * 4;
+        final int b = (a + 4) & (LINES * 4 - 1);
+        return Geometry.doLinesCross(lines[a], lines[a + 1], lines[a + 2], lines[a + 3],
+                lines[b], lines[b + 1], lines[b + 2], lines[b + 3]);
+    }
+}
@@ -0,0 +1,80 @@
+package algorithms.airport;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the validity test, point test, intersection query and ray cast for random
+ * vertex pairs, with and without an edge index
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IslandBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({"data500", "star-1000", "star-5000", "star-10000", "star-50000"})
+    public String island;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private Island poly;
+    private Scratch scratch;
+    private final int[] first = new int[PAIRS];
+    private final int[] second = new int[PAIRS];
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        poly = Polygons.load(island);
+        if (indexed)
+            poly.buildEdgeIndex();
+        scratch = poly.createScratch();
+
+        final Random random = new Random(7);
+        for (int i = 0; i < PAIRS; i++) {
+            first[i] = random.nextInt(poly.npoints);
+            do {
+                second[i] = random.nextInt(poly.npoints);
+            } while (second[i] == first[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean containsLine() {
+        final int i = next++ & (PAIRS - 1);
+        return poly.containsLine(first[i], second[i], scratch);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        final int i = next++ & (PAIRS - 1);
+        return poly.contains((poly.xpoints[first[i]] + poly.xpoints[second[i]]) / 2,
+                (poly.ypoints[first[i]] + poly.ypoints[second[i]]) / 2, scratch);
+    }
+
+    @Benchmark
+    public int getIntersections() {
+        final int i = next++ & (PAIRS - 1);
+        return poly.getIntersections(poly.xpoints[first[i]], poly.ypoints[first[i]],
+                poly.xpoints[second[i]], poly.ypoints[second[i]], scratch);
+    }
+
+    @Benchmark
+    public double castRay() {
+        final int i = next++ & (PAIRS - 1);
+        final double ax = poly.xpoints[first[i]];
+        final double ay = poly.ypoints[first[i]];
+        final double bx = poly.xpoints[second[i]];
+        final double by = poly.ypoints[second[i]];
+        return poly.castRay((ax + bx) / 2, (ay + by) / 2, bx - ax, by - ay, scratch);
+    }
+}
@@ -0,0 +1,54 @@
+package algorithms.airport;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Islands used by the benchmarks. <br>
+ * Names of the form star-n generate a star shaped island with n vertices,
+ * any other name is loaded from the data directory, which can be changed
+ * with the airport.data system property.
+ */
+final class Polygons {
+
+    private Polygons() {
+    }
+
+    static Island load(final String name) throws IOException {
+        if (name.startsWith("star-"))
+            return star(Integer.parseInt(name.substring("star-".length())), 42);
+
+        final File file = new File(System.getProperty("airport.data", "data"), name + ".txt");
+        final Island island = Application.loadPoly(file.getPath());
+
+        if (island == null)
+            throw new IOException("Invalid file format. " + file);
+
+        return island;
+    }
+
+    /**
+     * Generates a star shaped island. The vertices are spread evenly by angle
+     * around the origin with a random radius, so the island is always simple.
+     *
+     * @param n    The number of vertices
+     * @param seed The random seed
+     * @return The island
+     */
+    static Island star(final int n, final long seed) {
+        final Random random = new Random(seed);
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        final double scale = 100.0 * n;
+
+        for (int i = 0; i < n; i++) {
+            final double angle = 2 * Math.PI * i / n;
+            final double radius = scale * (0.5 + 0.5 * random.nextDouble());
+            x[i] = Math.round(radius * Math.cos(angle));
+            y[i] = Math.round(radius * Math.sin(angle));
+        }
+
+        return new Island(x, y, n);
+    }
+}
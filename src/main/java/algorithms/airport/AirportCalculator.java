@@ -1,123 +1,1022 @@
 package algorithms.airport;
 
-import java.awt.geom.Line2D;
-import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
-import static algorithms.airport.Utility.angleBetween;
+import static algorithms.airport.Geometry.boxChordLength;
+import static algorithms.airport.Geometry.distance;
+import static algorithms.airport.Geometry.distanceSq;
 
 public class AirportCalculator {
 
     private final Island poly;
+    private int parallelism = 1;
+    private ForkJoinPool pool;
+    private CandidateGenerator candidateGenerator = new BruteForceGenerator();
+    private boolean pruning;
+    private boolean convexFastPath = true;
+    private boolean statsEnabled;
+    private CalculatorStats stats;
+
+    /**
+     * Upper bounds are inflated by this fraction so rounding can never prune the best runway
+     */
+    static final double BOUND_SLACK = 0.000000001;
+
+    /**
+     * Runways whose end points are within this fraction of the island's size of each other are the same runway
+     */
+    static final double DISTINCT_TOLERANCE = 0.000000001;
+
+    /**
+     * The number of pairs an anytime search tests between checks of its stop condition
+     */
+    private static final int STOP_CHECK_INTERVAL = 64;
+
+    /**
+     * The most hull vertices used to order the rows of an anytime search
+     */
+    private static final int ROW_ORDER_SAMPLES = 64;
+
+    /**
+     * State shared by the workers of one calculation
+     */
+    private ConvexHull hull;
+    private int runwayCount;
+    private double tolerance;
+    private final AtomicLong bestLength = new AtomicLong();
+    private final LongAdder prunedCount = new LongAdder();
+    private final long[] counts = new long[CalculatorStats.COUNTERS];
 
     public AirportCalculator(final Island poly) {
         this.poly = poly;
     }
 
     /**
-     * Finds the longest possible runway on an island
+     * The island the calculator searches
+     */
+    public Island getIsland() {
+        return poly;
+    }
+
+    /**
+     * Sets the number of worker threads used by {@link #calculate()} <br>
+     * A parallelism of 1 runs the search on the calling thread.
+     *
+     * @param parallelism The number of worker threads
+     */
+    public void setParallelism(final int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * The number of worker threads used by {@link #calculate()}
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Runs {@link #calculate()} and {@link #calculateUntil} on a pool shared with other
+     * calculations instead of a pool of their own, so one set of workers can solve many
+     * islands at once. The search is split for the parallelism of the pool and the
+     * parallelism setting is ignored. The default is NULL, every calculation starts its own pool.
+     *
+     * @param pool The pool, or NULL
+     */
+    public void setPool(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * The shared pool used by {@link #calculate()} and {@link #calculateUntil}, see {@link #setPool(ForkJoinPool)}
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the generator that chooses which vertex pairs are tested as runways <br>
+     * The default is a {@link BruteForceGenerator}.
+     *
+     * @param candidateGenerator The candidate generator
+     */
+    public void setCandidateGenerator(final CandidateGenerator candidateGenerator) {
+        if (candidateGenerator == null)
+            throw new IllegalArgumentException("Candidate generator must not be null.");
+        this.candidateGenerator = candidateGenerator;
+    }
+
+    /**
+     * The generator that chooses which vertex pairs are tested as runways
+     */
+    public CandidateGenerator getCandidateGenerator() {
+        return candidateGenerator;
+    }
+
+    /**
+     * Enables branch and bound pruning. Before a pair is tested, its runway length is
+     * bounded by the chord that the island's convex hull cuts from the line through
+     * the pair. Pairs whose bound is below the best runway found so far are skipped.
+     * The longest vertex pairs are tested first so a good runway is known early.
+     * Pruning never changes the result.
+     *
+     * @param pruning Whether to prune candidates
+     */
+    public void setPruning(final boolean pruning) {
+        this.pruning = pruning;
+    }
+
+    /**
+     * Whether branch and bound pruning is enabled, see {@link #setPruning(boolean)}
+     */
+    public boolean isPruning() {
+        return pruning;
+    }
+
+    /**
+     * The number of candidate pairs skipped by pruning during the last calculation
+     */
+    public long getPrunedCount() {
+        return prunedCount.sum();
+    }
+
+    /**
+     * Enables the convex fast path. Islands that are strictly convex are solved in linear
+     * time by finding the farthest pair of vertices with rotating calipers, which gives the
+     * same runway as the full search. Only used when finding a single runway. Enabled by default.
+     *
+     * @param convexFastPath Whether to solve convex islands with rotating calipers
+     */
+    public void setConvexFastPath(final boolean convexFastPath) {
+        this.convexFastPath = convexFastPath;
+    }
+
+    /**
+     * Whether the convex fast path is enabled, see {@link #setConvexFastPath(boolean)}
+     */
+    public boolean isConvexFastPath() {
+        return convexFastPath;
+    }
+
+    /**
+     * Enables statistics. Each calculation then counts the pairs it tests, how they
+     * are rejected and the intersections computed, and times its phases. The statistics
+     * are available from {@link #getStats()} and are added to the {@link CalculatorMetrics}
+     * shared by every calculator. Disabled by default.
+     *
+     * @param statsEnabled Whether to collect statistics
+     */
+    public void setStatsEnabled(final boolean statsEnabled) {
+        this.statsEnabled = statsEnabled;
+    }
+
+    /**
+     * Whether statistics are collected, see {@link #setStatsEnabled(boolean)}
+     */
+    public boolean isStatsEnabled() {
+        return statsEnabled;
+    }
+
+    /**
+     * The statistics of the last calculation
      *
-     * @return The runway as a line segment
+     * @return The statistics or NULL if the last calculation ran with statistics disabled
      */
-    public Line2D calculate() {
-        double runwayLength = Double.NEGATIVE_INFINITY;
-        Line2D runwayLine = null;
+    public CalculatorStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Finds the longest possible runway on an island <br>
+     * The island must not be modified while the calculation is running.
+     *
+     * @return The runway or NULL if no two vertices form a valid runway
+     */
+    public Runway calculate() {
+        final List<Runway> best = calculate(1);
+        return best.isEmpty() ? null : best.get(0);
+    }
+
+    /**
+     * Finds the k longest distinct runways on an island <br>
+     * Runways with the same end points are only counted once, even when they pass
+     * through different vertex pairs. Runways of equal length are ordered the way
+     * the serial search finds them, so the result does not depend on the parallelism.
+     *
+     * @param k The number of runways to find
+     * @return The runways from longest to shortest, fewer than k if the island has fewer valid runways
+     */
+    public List<Runway> calculate(final int k) {
+        if (k < 1)
+            throw new IllegalArgumentException("The number of runways must be at least 1.");
 
-        // n choose 2 segments to test
-        // If we check pt 1 and pt 4, we will never check pt 4 with pt 1
-        // This is the handshake problem
-        for (int a = 0; a < poly.npoints; a++) {
-            for (int b = a + 1; b < poly.npoints; b++) {
-                if (poly.containsLine(a, b)) {
-                    Point2D start = new Point2D.Double(poly.xpoints[a], poly.ypoints[a]);
-                    Point2D end = new Point2D.Double(poly.xpoints[b], poly.ypoints[b]);
+        return solve(k).toList();
+    }
+
+    /**
+     * Finds the k longest distinct runways on an island, see {@link #calculate(int)}
+     *
+     * @return The runways and the vertex pairs they were found from
+     */
+    private TopRunways solve(final int k) {
+        final TopRunways best;
+        final long startTime = statsEnabled ? System.nanoTime() : 0;
+        long hullTime = startTime;
+        long seedTime = startTime;
 
-                    start = extend(start, end, true);
-                    end = extend(start, end, false);
+        runwayCount = k;
+        tolerance = DISTINCT_TOLERANCE * (poly.getWidth() + poly.getHeight());
+        bestLength.set(Double.doubleToLongBits(0));
+        prunedCount.reset();
+        Arrays.fill(counts, 0);
+        stats = null;
 
-                    // once we know a line is valid we must attempt to extend it
-                    // since the longest line may not end on a vertex
+        final boolean convex = k == 1 && convexFastPath && ConvexDiameter.isConvex(poly);
 
-                    final double dist = start.distance(end);
+        if (pruning && !convex) {
+            hull = new ConvexHull(poly);
+            if (statsEnabled)
+                hullTime = System.nanoTime();
+            seed();
+            if (statsEnabled)
+                seedTime = System.nanoTime();
+        }
+
+        if (convex) {
+            best = solveConvex();
+        } else if (pool != null) {
+            // a calculation already running on the pool forks its tasks straight into it
+            final SearchTask task = new SearchTask(0, poly.npoints, minimumSplitSize(pool.getParallelism()));
+            best = ForkJoinTask.getPool() == pool ? task.invoke() : pool.invoke(task);
+        } else if (parallelism == 1) {
+            best = search(0, poly.npoints);
+        } else {
+            final ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                best = pool.invoke(new SearchTask(0, poly.npoints, minimumSplitSize(parallelism)));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        if (statsEnabled) {
+            final long endTime = System.nanoTime();
+            counts[CalculatorStats.PRUNED] = prunedCount.sum();
+            stats = new CalculatorStats(poly.npoints, convex, counts, hullTime - startTime, seedTime - hullTime,
+                    endTime - seedTime, endTime - startTime);
+            CalculatorMetrics.getInstance().record(stats);
+        }
+
+        return best;
+    }
+
+    /**
+     * Finds the longest runway it can within a time limit, see {@link #calculateUntil}
+     *
+     * @param timeout  How long to search for
+     * @param unit     The unit of the timeout
+     * @param progress Receives each runway that is longer than the ones before it, or NULL
+     * @return The longest runway found and whether the search finished
+     */
+    public AnytimeRunway calculateWithin(final long timeout, final TimeUnit unit, final Consumer<Runway> progress) {
+        if (timeout < 0)
+            throw new IllegalArgumentException("Timeout must not be negative.");
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return calculateUntil(() -> System.nanoTime() - deadline >= 0, progress);
+    }
+
+    /**
+     * Finds the longest runway it can until it is told to stop <br>
+     * The most promising pairs are tested first. Rows start at the vertices that reach
+     * farthest across the island, each row tests its longest pairs first, and pairs are
+     * pruned against the best runway as with {@link #setPruning(boolean)}. Every runway
+     * longer than the ones before it is passed to the progress callback, one at a time from
+     * the worker that found it. The stop condition is checked every few pairs, so the search
+     * returns soon after it turns true. A search that finishes returns the runway
+     * {@link #calculate()} finds. The candidate generator is ignored.
+     *
+     * @param stop     Checked while searching, the search stops once it returns true
+     * @param progress Receives each runway that is longer than the ones before it, or NULL
+     * @return The longest runway found and whether the search finished
+     */
+    public AnytimeRunway calculateUntil(final BooleanSupplier stop, final Consumer<Runway> progress) {
+        if (stop == null)
+            throw new IllegalArgumentException("Stop condition must not be null.");
+
+        final long startTime = statsEnabled ? System.nanoTime() : 0;
+        long hullTime = startTime;
+
+        runwayCount = 1;
+        tolerance = DISTINCT_TOLERANCE * (poly.getWidth() + poly.getHeight());
+        bestLength.set(Double.doubleToLongBits(0));
+        prunedCount.reset();
+        Arrays.fill(counts, 0);
+        stats = null;
+
+        final boolean convex = convexFastPath && ConvexDiameter.isConvex(poly);
+        final AnytimeSearch search = new AnytimeSearch(stop, progress);
+
+        if (convex) {
+            final List<Runway> runways = solveConvex().toList();
+            if (!runways.isEmpty())
+                search.publish(runways.get(0));
+        } else {
+            hull = new ConvexHull(poly);
+            search.orderRows();
+            if (statsEnabled)
+                hullTime = System.nanoTime();
 
-                    if (dist >= runwayLength) {
-                        runwayLength = dist;
-                        runwayLine = new Line2D.Double(start, end);
+            if (pool == null && parallelism == 1) {
+                search.run();
+            } else {
+                final int count = pool == null ? parallelism : pool.getParallelism();
+                final List<ForkJoinTask<?>> workers = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    workers.add(ForkJoinTask.adapt(search));
+                final ForkJoinTask<?> all = ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(workers));
+
+                if (pool != null) {
+                    // a search already running on the pool forks its workers straight into it
+                    if (ForkJoinTask.getPool() == pool)
+                        all.invoke();
+                    else
+                        pool.invoke(all);
+                } else {
+                    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+                    try {
+                        pool.invoke(all);
+                    } finally {
+                        pool.shutdown();
                     }
                 }
             }
         }
 
-        if (runwayLine == null)
+        if (statsEnabled) {
+            final long endTime = System.nanoTime();
+            counts[CalculatorStats.PRUNED] = prunedCount.sum();
+            stats = new CalculatorStats(poly.npoints, convex, counts, hullTime - startTime, 0,
+                    endTime - hullTime, endTime - startTime);
+            CalculatorMetrics.getInstance().record(stats);
+        }
+
+        final List<Runway> best = search.top.toList();
+        return new AnytimeRunway(best.isEmpty() ? null : best.get(0), !search.stopped);
+    }
+
+    /**
+     * Finds a runway on a simplified island, for islands with many nearly collinear vertices <br>
+     * The coast is simplified with Douglas-Peucker, see {@link Simplifier}, and the runway
+     * of the simplified island is carried over to the original coast and checked against it,
+     * so the runway is always valid on the island. The island is also simplified from the
+     * outside, into an island that contains it, and the longest runway of that island is an
+     * upper bound on the longest runway of this one. Both simplified islands are solved with
+     * this calculator's settings.
+     *
+     * @param tolerance The farthest a removed vertex may be from the line that replaces it
+     * @return The runway and a bound on how much longer the longest runway can be
+     */
+    public ApproximateRunway calculateApproximate(final double tolerance) {
+        if (!(tolerance >= 0) || Double.isInfinite(tolerance))
+            throw new IllegalArgumentException("Tolerance must be a finite non negative number.");
+        if (poly.getLakeCount() > 0)
+            throw new IllegalArgumentException("Simplification does not support islands with lakes.");
+
+        final Island simplified = Simplifier.simplify(poly, tolerance);
+        final Island outer = Simplifier.outer(poly, tolerance);
+
+        final TopRunways lower = withIsland(simplified).solve(1);
+        final TopRunways upper = withIsland(outer).solve(1);
+
+        // an island the simplification left as it is gives its runway unchanged
+        final Scratch scratch = poly.createScratch();
+        Runway best = simplified == poly ? first(lower) : refine(simplified, lower, tolerance, scratch);
+        final Runway other = outer == poly ? first(upper) : refine(outer, upper, tolerance, scratch);
+        if (other != null && (best == null || other.getLength() > best.getLength()))
+            best = other;
+
+        // the outer island contains this one, so if it has no runway neither does this one,
+        // and its runway's rounded end points are allowed for
+        final Runway longest = first(upper);
+        final double upperBound = longest == null ? 0 : longest.getLength() * (1 + BOUND_SLACK);
+        return new ApproximateRunway(best, Math.max(upperBound, best == null ? 0 : best.getLength()),
+                simplified.size(), outer.size());
+    }
+
+    private static Runway first(final TopRunways top) {
+        final List<Runway> runways = top.toList();
+        return runways.isEmpty() ? null : runways.get(0);
+    }
+
+    /**
+     * Creates a calculator for another island with the same settings as this one
+     */
+    private AirportCalculator withIsland(final Island island) {
+        final AirportCalculator calculator = new AirportCalculator(island);
+        calculator.parallelism = parallelism;
+        calculator.pool = pool;
+        calculator.candidateGenerator = candidateGenerator;
+        calculator.pruning = pruning;
+        calculator.convexFastPath = convexFastPath;
+        calculator.statsEnabled = statsEnabled;
+        return calculator;
+    }
+
+    /**
+     * Carries the runway of a simplified island over to the original coast <br>
+     * When the runway was found from two vertices the simplification kept, it is found again
+     * from those vertices on the original island just as the full search would, checking the
+     * line between them and extending it to the original coast. If that line is not valid, or
+     * its runway is shorter than on the simplified island, the vertices within the tolerance of
+     * that runway are tried in place of either one. Otherwise the runway is cast both
+     * ways along its line from its midpoint to the nearest edges, and only kept when both
+     * halves lie inside the island.
+     *
+     * @param simplified The simplified island
+     * @param top        The runway of the simplified island
+     * @param tolerance  The tolerance the island was simplified with
+     * @return The runway on the original island, or NULL if it could not be carried over
+     */
+    private Runway refine(final Island simplified, final TopRunways top, final double tolerance,
+                          final Scratch scratch) {
+        final Runway runway = first(top);
+        if (runway == null)
+            return null;
+
+        final int m = simplified.npoints;
+        final long sequence = top.firstSequence();
+        final int[] original = originalIndices(simplified);
+        final int a = original[(int) (sequence / m)];
+        final int b = original[(int) (sequence % m)];
+        if (a >= 0 && b >= 0) {
+            Runway best = null;
+            if (poly.containsLine(a, b, scratch)) {
+                final double[] start = new double[2];
+                final double[] end = new double[2];
+                final double dist = evaluate(poly, a, b, scratch, start, end);
+                best = new Runway(start[0], start[1], end[0], end[1], dist);
+                if (dist >= runway.getLength())
+                    return best;
+            }
+
+            // the original coast can bulge across the line or cut its extensions short, but only
+            // by the tolerance, and a longer line then rests on one of the vertices that do
+            final Runway through = longestThrough(a, b, runway, tolerance, scratch);
+            if (through != null && (best == null || through.getLength() > best.getLength()))
+                best = through;
+            if (best != null)
+                return best;
+        }
+
+        final double mx = (runway.getX1() + runway.getX2()) / 2;
+        final double my = (runway.getY1() + runway.getY2()) / 2;
+        final double dx = runway.getX2() - runway.getX1();
+        final double dy = runway.getY2() - runway.getY1();
+        if (!poly.contains(mx, my, scratch))
             return null;
 
-        return runwayLine;
+        final double forward = poly.castRay(mx, my, dx, dy, scratch);
+        final double backward = poly.castRay(mx, my, -dx, -dy, scratch);
+        if (forward == Double.POSITIVE_INFINITY || backward == Double.POSITIVE_INFINITY)
+            return null;
+
+        // each half ends at the nearest edge, so it lies inside exactly when its own midpoint does
+        final double fx = mx + forward * dx;
+        final double fy = my + forward * dy;
+        final double bx = mx - backward * dx;
+        final double by = my - backward * dy;
+        if (!poly.contains((mx + fx) / 2, (my + fy) / 2, scratch)
+                || !poly.contains((mx + bx) / 2, (my + by) / 2, scratch))
+            return null;
+
+        return new Runway(bx, by, fx, fy);
     }
 
     /**
-     * Attempts to extend a line segment on one side <br>
-     * We will extend the line by a large amount and find the closest
-     * intersect to the point we extend from
-     *
-     * @param a The first point in the line segment
-     * @param b The second point in the line segment
-     * @param extendA Whether to extend the line from point a or b
-     * @return The pt to which the line has been extended to
-     */
-    private Point2D extend(final Point2D a, final Point2D b, final boolean extendA) {
-        // this is arbitrary but guaranteed to extend outside the polygon
-        final double extensionAmount = poly.getBounds().getWidth() * poly.getBounds().getHeight();
-        double nx, ny;
-
-        if (extendA) {
-            final double angle = angleBetween(b, a);
-            nx = a.getX() + extensionAmount * Math.cos(Math.toRadians(angle));
-            ny = a.getY() + extensionAmount * Math.sin(Math.toRadians(angle));
-        } else {
-            final double angle = angleBetween(a, b);
-            nx = b.getX() + extensionAmount * Math.cos(Math.toRadians(angle));
-            ny = b.getY() + extensionAmount * Math.sin(Math.toRadians(angle));
+     * Finds the longest runway from one of two vertices through any vertex near a runway
+     *
+     * @param runway   The runway the vertices must be near
+     * @param distance How far from the runway the vertices may be
+     * @return The runway or NULL if none of the lines are valid
+     */
+    private Runway longestThrough(final int a, final int b, final Runway runway, final double distance,
+                                  final Scratch scratch) {
+        final double[] start = new double[2];
+        final double[] end = new double[2];
+
+        Runway best = null;
+        for (int k = 0; k < poly.npoints; k++) {
+            if (k == a || k == b || Simplifier.segmentDistance(runway.getX1(), runway.getY1(), runway.getX2(),
+                    runway.getY2(), poly.xpoints[k], poly.ypoints[k]) > distance)
+                continue;
+
+            for (final int from : new int[]{a, b}) {
+                if (poly.containsLine(from, k, scratch)) {
+                    final double dist = evaluate(poly, from, k, scratch, start, end);
+                    if (best == null || dist > best.getLength())
+                        best = new Runway(start[0], start[1], end[0], end[1], dist);
+                }
+            }
         }
 
-        final Point2D np = getClosestIntersection(new Point2D.Double(nx, ny), extendA ? a : b);
+        return best;
+    }
 
-        if (np != null) {
-            double m1 = ((extendA ? a.getX() : b.getX()) + np.getX()) / 2;
-            double m2 = ((extendA ? a.getY() : b.getY()) + np.getY()) / 2;
+    /**
+     * Finds the vertex of this island each vertex of a simplified island was kept from <br>
+     * The simplification keeps vertices in order and only adds a vertex between two kept
+     * ones, so one pass along both coasts finds them all.
+     *
+     * @return The index of each vertex on this island, or -1 for vertices the simplification added
+     */
+    private int[] originalIndices(final Island simplified) {
+        final int n = poly.npoints;
+        final int m = simplified.npoints;
+        final int[] original = new int[m];
+        Arrays.fill(original, -1);
 
-            // make sure the new point is also inside the polygon
-            if(!poly.contains(m1 , m2)) {
-                return extendA ? a : b;
+        for (int s = 0, i = 0; s < m && i < n; i++) {
+            if (poly.xpoints[i] == simplified.xpoints[s] && poly.ypoints[i] == simplified.ypoints[s]) {
+                original[s++] = i;
+            } else if (s + 1 < m && poly.xpoints[i] == simplified.xpoints[s + 1]
+                    && poly.ypoints[i] == simplified.ypoints[s + 1]) {
+                original[s + 1] = i;
+                s += 2;
+            }
+        }
+
+        return original;
+    }
+
+    /**
+     * Lists every distinct runway on the island from longest to shortest <br>
+     * The runways are found lazily. Vertex pairs are bounded on demand, first by the chord
+     * the bounding box cuts from the line through them and then by the convex hull's, and
+     * pairs are only tested once their bound is long enough to beat the next runway, so
+     * taking the first few runways bounds and tests only a small share of the pairs. The
+     * iterator is not thread safe and ignores the candidate generator and parallelism.
+     *
+     * @return The runways, longest first
+     */
+    public Iterator<Runway> runways() {
+        return new RunwayIterator(poly, DISTINCT_TOLERANCE * (poly.getWidth() + poly.getHeight()));
+    }
+
+    /**
+     * Finds the longest runways that pass through vertex a and vertex b
+     * for every a in the range [fromA, toA) and every b greater than a
+     *
+     * @param fromA The first vertex of the range (inclusive)
+     * @param toA   The last vertex of the range (exclusive)
+     * @return The longest runways, empty if none of the pairs form a valid runway
+     */
+    private TopRunways search(final int fromA, final int toA) {
+        final Scratch scratch = createScratch();
+        final double[] start = new double[2];
+        final double[] end = new double[2];
+
+        final int n = poly.npoints;
+        final int[] vertices = new int[n];
+        final boolean[] verified = new boolean[n];
+
+        final TopRunways top = new TopRunways(runwayCount, tolerance);
+        long pruned = 0;
+
+        for (int a = fromA; a < toA; a++) {
+            final int count = candidateGenerator.candidates(poly, a, vertices, verified);
+            scratch.count(CalculatorStats.PAIRS, count);
+
+            for (int k = 0; k < count; k++) {
+                final int b = vertices[k];
+
+                if (pruning && upperBound(a, b) < bestLength()) {
+                    pruned++;
+                    continue;
+                }
+
+                if (verified[k] || poly.containsLine(a, b, scratch)) {
+                    scratch.count(CalculatorStats.VALID, 1);
+                    final double dist = evaluate(poly, a, b, scratch, start, end);
+                    final long sequence = (long) a * n + b;
+
+                    if (top.accepts(dist, sequence)) {
+                        top.offer(new Runway(start[0], start[1], end[0], end[1], dist), sequence);
+                        offerBestLength(top.threshold());
+                    }
+                }
+            }
+        }
+
+        prunedCount.add(pruned);
+        addCounts(scratch);
+        return top;
+    }
+
+    /**
+     * Extends the valid line between two vertices in both directions
+     *
+     * @param poly  The island
+     * @param start Receives the x and y values of the start of the runway
+     * @param end   Receives the x and y values of the end of the runway
+     * @return The length of the runway
+     */
+    static double evaluate(final Island poly, final int a, final int b, final Scratch scratch,
+                           final double[] start, final double[] end) {
+        final double ax = poly.xpoints[a];
+        final double ay = poly.ypoints[a];
+        final double bx = poly.xpoints[b];
+        final double by = poly.ypoints[b];
+
+        // once we know a line is valid we must attempt to extend it
+        // since the longest line may not end on a vertex
+        extend(poly, ax, ay, ax - bx, ay - by, scratch, start);
+        extend(poly, bx, by, bx - ax, by - ay, scratch, end);
+
+        return distance(start[0], start[1], end[0], end[1]);
+    }
+
+    /**
+     * Finds the runway of a strictly convex island, the line between its farthest vertices
+     */
+    private TopRunways solveConvex() {
+        final Scratch scratch = createScratch();
+        final double[] start = new double[2];
+        final double[] end = new double[2];
+
+        final int n = poly.npoints;
+        final long pair = ConvexDiameter.diameter(poly);
+        final int a = (int) (pair / n);
+        final int b = (int) (pair % n);
+
+        final TopRunways top = new TopRunways(runwayCount, tolerance);
+        final double dist = evaluate(poly, a, b, scratch, start, end);
+        top.offer(new Runway(start[0], start[1], end[0], end[1], dist), pair);
+
+        addCounts(scratch);
+        return top;
+    }
+
+    /**
+     * Tests the longest vertex pairs so the search starts with good runways to prune against <br>
+     * Only the length of the k-th longest seed is kept, the search itself decides which runways are returned.
+     */
+    private void seed() {
+        final int n = poly.npoints;
+        final int seeds = 2 * n;
+
+        // a min heap of the longest pairs seen so far, each pair packed as a * n + b
+        final PriorityQueue<Long> longest = new PriorityQueue<>(seeds + 1,
+                (p, q) -> Double.compare(pairDistanceSq(p), pairDistanceSq(q)));
+
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                final double d = distanceSq(poly.xpoints[a], poly.ypoints[a], poly.xpoints[b], poly.ypoints[b]);
+                if (longest.size() < seeds) {
+                    longest.add((long) a * n + b);
+                } else if (d > pairDistanceSq(longest.peek())) {
+                    longest.poll();
+                    longest.add((long) a * n + b);
+                }
+            }
+        }
+
+        final Scratch scratch = createScratch();
+        final double[] start = new double[2];
+        final double[] end = new double[2];
+
+        final TopRunways top = new TopRunways(runwayCount, tolerance);
+        for (final long pair : longest) {
+            final int a = (int) (pair / n);
+            final int b = (int) (pair % n);
+
+            if (poly.containsLine(a, b, scratch)) {
+                final double dist = evaluate(poly, a, b, scratch, start, end);
+                top.offer(new Runway(start[0], start[1], end[0], end[1], dist), pair);
+            }
+        }
+
+        offerBestLength(top.threshold());
+        addCounts(scratch);
+    }
+
+    /**
+     * Creates a scratch for one worker, counting into its own counters when statistics are enabled
+     */
+    private Scratch createScratch() {
+        final Scratch scratch = poly.createScratch();
+        if (statsEnabled)
+            scratch.counts = new long[CalculatorStats.COUNTERS];
+        return scratch;
+    }
+
+    /**
+     * Adds a worker's counters to the totals of the calculation
+     */
+    private void addCounts(final Scratch scratch) {
+        if (scratch.counts == null)
+            return;
+
+        synchronized (counts) {
+            for (int i = 0; i < counts.length; i++)
+                counts[i] += scratch.counts[i];
+        }
+    }
+
+    private double pairDistanceSq(final long pair) {
+        final int a = (int) (pair / poly.npoints);
+        final int b = (int) (pair % poly.npoints);
+        return distanceSq(poly.xpoints[a], poly.ypoints[a], poly.xpoints[b], poly.ypoints[b]);
+    }
+
+    /**
+     * Bounds the length of any runway through two vertices by the chord that the
+     * bounding box, and then the convex hull, cut from the line through them
+     */
+    private double upperBound(final int a, final int b) {
+        final double ax = poly.xpoints[a];
+        final double ay = poly.ypoints[a];
+        final double dx = poly.xpoints[b] - ax;
+        final double dy = poly.ypoints[b] - ay;
+
+        final double boxChord = boxChordLength(poly.getMinX(), poly.getMinY(), poly.getMaxX(), poly.getMaxY(),
+                ax, ay, dx, dy);
+        if (boxChord * (1 + BOUND_SLACK) < bestLength())
+            return boxChord * (1 + BOUND_SLACK);
+
+        return hull.chordLength(ax, ay, dx, dy) * (1 + BOUND_SLACK);
+    }
+
+    /**
+     * The longest runway length found by any worker so far
+     */
+    private double bestLength() {
+        return Double.longBitsToDouble(bestLength.get());
+    }
+
+    /**
+     * Raises the shared best length if the given length is longer
+     */
+    private void offerBestLength(final double length) {
+        // non negative doubles order the same way as their bits
+        final long bits = Double.doubleToLongBits(length);
+        long current;
+        while (bits > (current = bestLength.get()) && !bestLength.compareAndSet(current, bits)) {
+            // another worker raised it first, try again
+        }
+    }
+
+    /**
+     * The number of vertex pairs a task will test on its own before it is split
+     */
+    private long minimumSplitSize(final int workers) {
+        // aim for several tasks per worker so uneven rows can be stolen
+        return Math.max(1, pairCount(0, poly.npoints) / (workers * 8L));
+    }
+
+    /**
+     * The number of vertex pairs tested for every a in the range [fromA, toA)
+     */
+    private long pairCount(final int fromA, final int toA) {
+        final long n = poly.npoints;
+        // row a tests n - 1 - a pairs
+        return (toA - fromA) * (2 * n - 1 - fromA - toA) / 2;
+    }
+
+    /**
+     * Keeps the longest runways found by two workers. Runways are ranked by the order
+     * of their vertex pairs as well as their length, so the merged result matches
+     * the serial search.
+     *
+     * @param earlier The runways from the lower range of vertices
+     * @param later   The runways from the higher range of vertices
+     * @return The longest runways of both
+     */
+    private static TopRunways merge(final TopRunways earlier, final TopRunways later) {
+        earlier.addAll(later);
+        return earlier;
+    }
+
+    /**
+     * Searches a range of first vertices, splitting the range in two
+     * by pair count until it is small enough to search directly
+     */
+    private class SearchTask extends RecursiveTask<TopRunways> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int fromA;
+        private final int toA;
+        private final long minimumSplitSize;
+
+        SearchTask(final int fromA, final int toA, final long minimumSplitSize) {
+            this.fromA = fromA;
+            this.toA = toA;
+            this.minimumSplitSize = minimumSplitSize;
+        }
+
+        @Override
+        protected TopRunways compute() {
+            final long pairs = pairCount(fromA, toA);
+
+            if (toA - fromA == 1 || pairs <= minimumSplitSize)
+                return search(fromA, toA);
+
+            // early rows hold more pairs, so split on half the pairs rather than half the rows
+            int mid = fromA + 1;
+            while (mid < toA - 1 && pairCount(fromA, mid) < pairs / 2)
+                mid++;
+
+            final SearchTask lower = new SearchTask(fromA, mid, minimumSplitSize);
+            final SearchTask upper = new SearchTask(mid, toA, minimumSplitSize);
+            lower.fork();
+
+            final TopRunways upperBest = upper.compute();
+            return merge(lower.join(), upperBest);
+        }
+    }
+
+    /**
+     * Tests vertex pairs from the most promising down until every pair is tested or the
+     * search is stopped. Workers share one search and take rows from it in turn.
+     */
+    private class AnytimeSearch implements Runnable {
+
+        private final BooleanSupplier stop;
+        private final Consumer<Runway> progress;
+        private final TopRunways top = new TopRunways(1, tolerance);
+        private final AtomicInteger nextRow = new AtomicInteger();
+        private volatile boolean stopped;
+        private double published;
+
+        /**
+         * The first vertex of each row, and the position of each vertex in that order
+         */
+        private int[] order;
+        private int[] rank;
+
+        AnytimeSearch(final BooleanSupplier stop, final Consumer<Runway> progress) {
+            this.stop = stop;
+            this.progress = progress;
+        }
+
+        /**
+         * Orders the rows by how far their vertex is from the far side of the hull, farthest
+         * first, since the longest runways run between the vertices at the ends of the island
+         */
+        void orderRows() {
+            final int n = poly.npoints;
+            final int step = Math.max(1, hull.size() / ROW_ORDER_SAMPLES);
+
+            final long[] reach = new long[n];
+            for (int a = 0; a < n; a++) {
+                double far = 0;
+                for (int i = 0; i < hull.size(); i += step)
+                    far = Math.max(far, distanceSq(poly.xpoints[a], poly.ypoints[a], hull.getX(i), hull.getY(i)));
+
+                // non negative floats order the same way as their bits
+                reach[a] = (long) Float.floatToIntBits((float) far) << 32 | a;
+            }
+            Arrays.sort(reach);
+
+            order = new int[n];
+            rank = new int[n];
+            for (int r = 0; r < n; r++) {
+                order[r] = (int) reach[n - 1 - r];
+                rank[order[r]] = r;
+            }
+        }
+
+        @Override
+        public void run() {
+            final Scratch scratch = createScratch();
+            final double[] start = new double[2];
+            final double[] end = new double[2];
+
+            final int n = poly.npoints;
+            final long[] pairs = new long[n];
+            long pruned = 0;
+            int untilCheck = STOP_CHECK_INTERVAL;
+
+            for (int r = nextRow.getAndIncrement(); r < n && !stopped; r = nextRow.getAndIncrement()) {
+                final int a = order[r];
+
+                // each pair is tested in the row of whichever of its vertices comes first,
+                // longest pair first
+                int count = 0;
+                for (int b = 0; b < n; b++) {
+                    if (rank[b] > r) {
+                        final double d = distanceSq(poly.xpoints[a], poly.ypoints[a], poly.xpoints[b], poly.ypoints[b]);
+                        pairs[count++] = (long) Float.floatToIntBits((float) d) << 32 | b;
+                    }
+                }
+                Arrays.sort(pairs, 0, count);
+                scratch.count(CalculatorStats.PAIRS, count);
+
+                for (int k = count - 1; k >= 0; k--) {
+                    if (--untilCheck == 0) {
+                        untilCheck = STOP_CHECK_INTERVAL;
+                        if (stopped || stop.getAsBoolean()) {
+                            stopped = true;
+                            break;
+                        }
+                    }
+
+                    // pairs are ranked the way the full search finds them, lowest vertex first
+                    final int b = (int) pairs[k];
+                    final int low = Math.min(a, b);
+                    final int high = Math.max(a, b);
+
+                    if (upperBound(low, high) < bestLength()) {
+                        pruned++;
+                        continue;
+                    }
+
+                    if (poly.containsLine(low, high, scratch)) {
+                        scratch.count(CalculatorStats.VALID, 1);
+                        final double dist = evaluate(poly, low, high, scratch, start, end);
+                        offer(new Runway(start[0], start[1], end[0], end[1], dist), (long) low * n + high);
+                    }
+                }
             }
 
-            return np;
+            prunedCount.add(pruned);
+            addCounts(scratch);
+        }
+
+        private synchronized void offer(final Runway runway, final long sequence) {
+            if (!top.accepts(runway.getLength(), sequence))
+                return;
+
+            top.offer(runway, sequence);
+            offerBestLength(top.threshold());
+            if (runway.getLength() > published) {
+                published = runway.getLength();
+                if (progress != null)
+                    progress.accept(runway);
+            }
         }
 
-        // no intersection, return the original point
-        return extendA ? a : b;
+        /**
+         * Passes on a runway found without searching, a single runway is a finished search
+         */
+        void publish(final Runway runway) {
+            top.offer(runway, 0);
+            if (progress != null)
+                progress.accept(runway);
+        }
     }
 
     /**
-     * Finds the closest intersection to the second point
-     * in the provided line segment
+     * Attempts to extend a line segment on one side <br>
+     * A ray is cast from the end of the segment and the segment is extended
+     * to the nearest edge it hits, as long as the extension stays inside the island.
      *
-     * @param a The first point in the line segment
-     * @param b The second line in the segment and the point which to find the closest intersection to
-     * @return The closest intersection point
+     * @param poly    The island
+     * @param x       The x value of the point to extend from
+     * @param y       The y value of the point to extend from
+     * @param dx      The x value of the direction to extend in
+     * @param dy      The y value of the direction to extend in
+     * @param scratch The scratch from {@link Island#createScratch()}
+     * @param out     Receives the x and y values of the point the line has been extended to
+     * @return The ray parameter of the edge that was hit, see {@link Island#castRay}, whether or
+     * not the line could be extended to it
      */
-    private Point2D getClosestIntersection(final Point2D a, final Point2D b) {
-        final List<Point2D> intersections = poly.getIntersections(a, b);
+    static double extend(final Island poly, final double x, final double y, final double dx, final double dy,
+                         final Scratch scratch, final double[] out) {
+        // no intersection, keep the original point
+        out[0] = x;
+        out[1] = y;
+        scratch.count(CalculatorStats.EXTENDS, 1);
 
-        double dist = Double.POSITIVE_INFINITY;
-        Point2D result = null;
+        final double t = poly.castRay(x, y, dx, dy, scratch);
 
-        for (final Point2D intersection : intersections) {
-            if (intersection.distance(b) < dist && dist > 0.0000001) {
-                result = intersection;
-                dist = intersection.distance(b);
+        if (t != Double.POSITIVE_INFINITY) {
+            final double px = x + t * dx;
+            final double py = y + t * dy;
+
+            // make sure the new point is also inside the polygon
+            if (poly.contains((x + px) / 2, (y + py) / 2, scratch)) {
+                out[0] = px;
+                out[1] = py;
             }
         }
 
-        return result;
+        return t;
     }
-}
\ No newline at end of file
+}
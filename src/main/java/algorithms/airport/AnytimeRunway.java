@@ -0,0 +1,40 @@
+package algorithms.airport;
+
+/**
+ * The best runway found by a search that may have been stopped early,
+ * see {@link AirportCalculator#calculateUntil}. <br>
+ * A complete search tested every vertex pair and found the longest runway.
+ */
+public final class AnytimeRunway {
+
+    private final Runway runway;
+    private final boolean complete;
+
+    AnytimeRunway(final Runway runway, final boolean complete) {
+        this.runway = runway;
+        this.complete = complete;
+    }
+
+    /**
+     * The longest runway found before the search finished or was stopped
+     *
+     * @return The runway or NULL if no valid runway was found
+     */
+    public Runway getRunway() {
+        return runway;
+    }
+
+    /**
+     * The length of the runway, or 0 if no valid runway was found
+     */
+    public double getLength() {
+        return runway == null ? 0 : runway.getLength();
+    }
+
+    /**
+     * Whether the search finished, so the runway is the longest runway of the island
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
@@ -1,45 +1,270 @@
 package algorithms.airport;
 
-import javax.imageio.ImageIO;
-import java.awt.geom.Line2D;
-import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class Application {
 
     private static String output = "output.png";
 
+    /**
+     * The width of rendered images
+     */
+    static final int IMAGE_WIDTH = 400;
+
+    /**
+     * The most islands kept in a cache file
+     */
+    static final int CACHE_SIZE = 10000;
+
+    /**
+     * The number of times the server solves an island before it accepts requests
+     */
+    static final int WARM_UP_ROUNDS = 20;
+
     public static void main(String[] args) {
-        if (args.length == 0) {
+        final List<String> positional = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        CandidateGenerator candidates = new BruteForceGenerator();
+        boolean prune = false;
+        String batch = null;
+        String summary = null;
+        String render = null;
+        String binary = null;
+        String cacheFile = null;
+        boolean stats = false;
+        double tolerance = -1;
+        long timeLimit = -1;
+        boolean serve = false;
+        int port = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-t") || args[i].equals("--threads")) {
+                if (i + 1 >= args.length) {
+                    System.out.println("Error: " + args[i] + " requires a thread count.");
+                    return;
+                }
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    System.out.println("Error: The thread count must be a positive integer.");
+                    return;
+                }
+            } else if (args[i].equals("-p") || args[i].equals("--prune")) {
+                prune = true;
+            } else if (args[i].equals("-c") || args[i].equals("--candidates")) {
+                if (i + 1 >= args.length) {
+                    System.out.println("Error: " + args[i] + " requires brute or visibility.");
+                    return;
+                }
+                final String name = args[++i];
+                if (name.equals("brute")) {
+                    candidates = new BruteForceGenerator();
+                } else if (name.equals("visibility")) {
+                    candidates = new VisibilityGraphGenerator();
+                } else {
+                    System.out.println("Error: Unknown candidate generator " + name + ".");
+                    return;
+                }
+            } else if (args[i].equals("-b") || args[i].equals("--batch")) {
+                if (i + 1 >= args.length) {
+                    System.out.println("Error: " + args[i] + " requires a path.");
+                    return;
+                }
+                batch = args[++i];
+            } else if (args[i].equals("-s") || args[i].equals("--summary")) {
+                if (i + 1 >= args.length) {
+                    System.out.println("Error: " + args[i] + " requires a path.");
+                    return;
+                }
+                summary = args[++i];
+            } else if (args[i].equals("-r") || args[i].equals("--render")) {
+                if (i + 1 >= args.length) {
+                    System.out.println("Error: " + args[i] + " requires a path.");
+                    return;
+                }
+                render = args[++i];
+            } else if (args[i].equals("--write-binary")) {
+                if (i + 1 >= args.length) {
+                    System.out.println("Error: " + args[i] + " requires a path.");
+                    return;
+                }
+                binary = args[++i];
+            } else if (args[i].equals("--stats")) {
+                stats = true;
+            } else if (args[i].equals("--cache")) {
+                if (i + 1 >= args.length) {
+                    System.out.println("Error: " + args[i] + " requires a path.");
+                    return;
+                }
+                cacheFile = args[++i];
+            } else if (args[i].equals("--serve")) {
+                serve = true;
+            } else if (args[i].equals("--port")) {
+                if (i + 1 >= args.length) {
+                    System.out.println("Error: " + args[i] + " requires a port number.");
+                    return;
+                }
+                try {
+                    port = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    port = 0;
+                }
+                if (port < 1 || port > 65535) {
+                    System.out.println("Error: The port must be between 1 and 65535.");
+                    return;
+                }
+            } else if (args[i].equals("--time-limit")) {
+                if (i + 1 >= args.length) {
+                    System.out.println("Error: " + args[i] + " requires a number of milliseconds.");
+                    return;
+                }
+                try {
+                    timeLimit = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    timeLimit = -1;
+                }
+                if (timeLimit < 0) {
+                    System.out.println("Error: The time limit must be a non negative integer.");
+                    return;
+                }
+            } else if (args[i].equals("--simplify")) {
+                if (i + 1 >= args.length) {
+                    System.out.println("Error: " + args[i] + " requires a tolerance.");
+                    return;
+                }
+                try {
+                    tolerance = Double.parseDouble(args[++i]);
+                } catch (NumberFormatException e) {
+                    tolerance = -1;
+                }
+                if (!(tolerance >= 0) || Double.isInfinite(tolerance)) {
+                    System.out.println("Error: The tolerance must be a non negative number.");
+                    return;
+                }
+            } else {
+                positional.add(args[i]);
+            }
+        }
+
+        // every mode publishes the totals of the calculations it runs
+        if (stats)
+            CalculatorMetrics.registerMBean();
+
+        if (serve || port > 0) {
+            if (!positional.isEmpty() || batch != null) {
+                System.out.println("Error: Server mode does not take an input polygon file or batch.");
+                return;
+            }
+            // standard output carries the responses, so everything else goes to standard error
+            final RunwayCache cache = loadCache(cacheFile, System.err);
+            runServer(port, threads, candidates, prune, stats, cache);
+            saveCache(cache, cacheFile, System.err);
+            return;
+        }
+
+        if (batch != null) {
+            if (!positional.isEmpty()) {
+                System.out.println("Error: Batch mode does not take an input polygon file.");
+                return;
+            }
+            if (tolerance >= 0 || timeLimit >= 0) {
+                System.out.println("Error: Batch mode does not support --simplify or --time-limit.");
+                return;
+            }
+            final RunwayCache cache = loadCache(cacheFile, System.out);
+            runBatch(batch, summary, render, threads, candidates, prune, stats, cache);
+            saveCache(cache, cacheFile, System.out);
+            return;
+        }
+
+        if (tolerance >= 0 && timeLimit >= 0) {
+            System.out.println("Error: --simplify and --time-limit cannot be combined.");
+            return;
+        }
+
+        if (positional.isEmpty()) {
             System.out.println("Error: You must provide an input polygon file.");
             return;
         }
 
-        final String path = args[0];
+        final String path = positional.get(0);
 
-        if (args.length >= 2) {
-            output = args[1];
+        if (positional.size() >= 2) {
+            output = positional.get(1);
         }
 
         try {
-            Island poly = loadPoly(path);
-            if (poly != null) {
+            final List<Island> islands = PolygonLoader.loadArchipelago(Paths.get(path));
+            if (islands != null && islands.size() > 1) {
+                if (binary != null || tolerance >= 0 || timeLimit >= 0) {
+                    System.out.println("Error: Archipelagos do not support --write-binary, --simplify or --time-limit.");
+                    return;
+                }
+                runArchipelago(islands, threads, candidates, prune, stats, cacheFile);
+                return;
+            }
 
-                int width = 400;
-                int height = (int) (poly.getBounds().getHeight() / poly.getBounds().getWidth() * width);
+            Island poly = islands == null ? null : islands.get(0);
+            if (poly != null && binary != null) {
+                PolygonLoader.writeBinary(poly, Paths.get(binary));
+                System.out.println("Wrote " + poly.size() + " vertices to " + binary + ".");
+            } else if (poly != null) {
+                poly.prepareForQueries();
 
+                final RunwayCache cache = loadCache(cacheFile, System.out);
                 long startTime = System.currentTimeMillis();
-                Line2D runway = new AirportCalculator(poly).calculate();
+                AirportCalculator calculator = new AirportCalculator(poly);
+                calculator.setParallelism(threads);
+                calculator.setCandidateGenerator(candidates);
+                calculator.setPruning(prune);
+                calculator.setStatsEnabled(stats);
+                ApproximateRunway approximate = null;
+                AnytimeRunway anytime = null;
+                Runway runway;
+                if (tolerance >= 0) {
+                    approximate = calculator.calculateApproximate(tolerance);
+                    runway = approximate.getRunway();
+                } else if (timeLimit >= 0) {
+                    anytime = calculator.calculateWithin(timeLimit, TimeUnit.MILLISECONDS,
+                            r -> System.out.println("Found a runway of length " + r.getLength() + " after "
+                                    + (System.currentTimeMillis() - startTime) + " ms."));
+                    runway = anytime.getRunway();
+                } else {
+                    runway = cache == null ? calculator.calculate() : cache.calculate(calculator);
+                }
                 System.out.println("Calculated in " + (System.currentTimeMillis() - startTime) + " ms.");
+                if (approximate != null)
+                    System.out.println("Simplified to " + approximate.getSimplifiedVertexCount() + " vertices, "
+                            + approximate.getOuterVertexCount() + " for the bound, the longest runway is at most "
+                            + approximate.getErrorBound() + " longer.");
+                if (anytime != null && !anytime.isComplete())
+                    System.out.println("Stopped at the time limit, a longer runway may exist.");
+                if (cache != null && cache.getHitCount() > 0)
+                    System.out.println("Found in cache " + cacheFile + ".");
+                saveCache(cache, cacheFile, System.out);
+                if (prune)
+                    System.out.println("Pruned " + calculator.getPrunedCount() + " candidates.");
+                if (calculator.getStats() != null)
+                    System.out.println(calculator.getStats());
 
                 if (runway != null) {
-                    System.out.println("Runway length: " + runway.getP1().distance(runway.getP2()));
-                    System.out.println("(" + runway.getX1() + "," + runway.getY1() + ") to (" + runway.getX2() + "," + runway.getY2() + ")");
+                    System.out.println("Runway length: " + runway.getLength());
+                    System.out.println(runway);
 
-                    Renderer renderer = new Renderer(poly, runway);
-                    BufferedImage img = renderer.toImage(width, height);
-                    ImageIO.write(img, "png", new FileOutputStream(output));
+                    final Renderer renderer = new Renderer(poly, runway);
+                    if (output.toLowerCase(Locale.ROOT).endsWith(".svg")) {
+                        renderer.writeSvg(output, IMAGE_WIDTH);
+                    } else {
+                        renderer.writePng(output, IMAGE_WIDTH);
+                    }
                 } else {
                     System.out.println("The polygon is invalid: No two vertices can form a valid runway");
                 }
@@ -49,34 +274,175 @@ public class Application {
         } catch (IOException e) {
             System.out.println("Failed to read file. " + path);
             e.printStackTrace();
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid island. " + e.getMessage());
         }
     }
 
-    private static Island loadPoly(final String file) throws IOException {
-        final BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+    /**
+     * Solves every island named by a batch specification and writes a summary record for each one
+     *
+     * @param batch   The directory, glob or @manifest, see {@link BatchRunner#findInputs(String)}
+     * @param summary The summary file, or NULL to write the summary to standard output
+     * @param render  The directory to write images to, or NULL to skip rendering
+     * @param stats   Whether to collect statistics, see {@link CalculatorMetrics}
+     * @param cache   The cache to look islands up in, or NULL to solve every island
+     */
+    private static void runBatch(final String batch, final String summary, final String render, final int threads,
+                                 final CandidateGenerator candidates, final boolean prune, final boolean stats,
+                                 final RunwayCache cache) {
+        final List<Path> inputs;
+        try {
+            inputs = BatchRunner.findInputs(batch);
+        } catch (IOException e) {
+            System.out.println("Failed to read batch. " + batch);
+            e.printStackTrace();
+            return;
+        }
 
-        final List<Integer> xPoints = new ArrayList<>();
-        final List<Integer> yPoints = new ArrayList<>();
+        if (inputs.isEmpty()) {
+            System.out.println("Error: No polygon files found for " + batch + ".");
+            return;
+        }
 
-        String line;
-        while ((line = br.readLine()) != null) {
-            if (line.trim().isEmpty())
-                continue;
+        final BatchRunner runner = new BatchRunner(inputs);
+        runner.setWorkers(threads);
+        runner.setCandidateGenerator(candidates);
+        runner.setPruning(prune);
+        runner.setStatsEnabled(stats);
+        runner.setCache(cache);
+        if (render != null)
+            runner.setRenderDirectory(Paths.get(render));
 
-            final String[] numbers = line.split(" ");
+        // keep the totals out of the summary when it is written to standard output
+        final PrintStream log = summary == null ? System.err : System.out;
+        final long startTime = System.currentTimeMillis();
 
-            if (numbers.length != 2)
-                return null;
+        try (Writer out = summary == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : new BufferedWriter(new OutputStreamWriter(new FileOutputStream(summary), StandardCharsets.UTF_8))) {
+            final BatchRunner.Format format = summary == null ? BatchRunner.Format.CSV : BatchRunner.Format.forFile(summary);
+            final int failures = runner.run(out, format);
 
-            try {
-                xPoints.add(Integer.parseInt(numbers[0]));
-                yPoints.add(Integer.parseInt(numbers[1]));
-            } catch (NumberFormatException e) {
-                return null;
+            log.println("Solved " + (inputs.size() - failures) + " of " + inputs.size() + " islands in "
+                    + (System.currentTimeMillis() - startTime) + " ms.");
+            if (cache != null)
+                log.println("Cache hits: " + cache.getHitCount() + ", misses: " + cache.getMissCount() + ".");
+            if (stats) {
+                final CalculatorMetrics metrics = CalculatorMetrics.getInstance();
+                log.println("Tested " + metrics.getPairCount() + " pairs, slowest island " + metrics.getSlowestMillis()
+                        + " ms with " + metrics.getSlowestVertexCount() + " vertices.");
             }
+        } catch (IOException e) {
+            System.out.println("Failed to write summary. " + (summary == null ? "" : summary));
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Solves every island of an archipelago on one pool and prints the runway of each one
+     *
+     * @param islands   The islands, see {@link PolygonLoader#loadArchipelago}
+     * @param stats     Whether to collect statistics, see {@link CalculatorMetrics}
+     * @param cacheFile The cache file, or NULL to solve every island
+     */
+    private static void runArchipelago(final List<Island> islands, final int threads,
+                                       final CandidateGenerator candidates, final boolean prune,
+                                       final boolean stats, final String cacheFile) {
+        final RunwayCache cache = loadCache(cacheFile, System.out);
+        final ArchipelagoSolver solver = new ArchipelagoSolver(islands);
+        solver.setParallelism(threads);
+        solver.setCandidateGenerator(candidates);
+        solver.setPruning(prune);
+        solver.setStatsEnabled(stats);
+        solver.setCache(cache);
+
+        final long startTime = System.currentTimeMillis();
+        final List<Runway> runways = solver.calculate();
+        System.out.println("Calculated " + islands.size() + " islands in " + (System.currentTimeMillis() - startTime)
+                + " ms.");
+        saveCache(cache, cacheFile, System.out);
+
+        for (int i = 0; i < runways.size(); i++) {
+            final Runway runway = runways.get(i);
+            System.out.println("Island " + (i + 1) + " (" + islands.get(i).size() + " vertices, "
+                    + islands.get(i).getLakeCount() + " lakes): " + (runway == null
+                    ? "No two vertices can form a valid runway" : "Runway length: " + runway.getLength() + " " + runway));
         }
+    }
+
+    /**
+     * Serves requests from standard input, or from a local port, until the input ends
+     *
+     * @param port  The port to listen on, or 0 to serve standard input and output
+     * @param stats Whether to collect statistics, see {@link CalculatorMetrics}
+     * @param cache The cache to look islands up in, or NULL to solve every island
+     */
+    private static void runServer(final int port, final int threads, final CandidateGenerator candidates,
+                                  final boolean prune, final boolean stats, final RunwayCache cache) {
+        try (SolverServer server = new SolverServer(threads)) {
+            server.setCandidateGenerator(candidates);
+            server.setPruning(prune);
+            server.setStatsEnabled(stats);
+            server.setCache(cache);
+
+            final long startTime = System.currentTimeMillis();
+            server.warmUp(WARM_UP_ROUNDS);
+            System.err.println("Warmed up in " + (System.currentTimeMillis() - startTime) + " ms.");
+
+            if (port > 0) {
+                System.err.println("Listening on port " + port + ".");
+                server.listen(port);
+            } else {
+                server.serve(System.in, System.out);
+            }
+
+            System.err.println("Served " + server.getRequestCount() + " requests, p50 " + server.getLatencyMillis(0.5)
+                    + " ms, p99 " + server.getLatencyMillis(0.99) + " ms.");
+        } catch (IOException e) {
+            System.err.println("Server failed. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the cache file, a missing or unreadable file starts an empty cache
+     *
+     * @param file The cache file, or NULL to run without a cache
+     * @param log  Where to report an unreadable file
+     * @return The cache or NULL if there is no cache file
+     */
+    private static RunwayCache loadCache(final String file, final PrintStream log) {
+        if (file == null)
+            return null;
+
+        final RunwayCache cache = new RunwayCache(CACHE_SIZE);
+        try {
+            cache.load(Paths.get(file));
+        } catch (IOException e) {
+            log.println("Ignoring unreadable cache " + file + ". " + e.getMessage());
+            cache.clear();
+        }
+        return cache;
+    }
+
+    private static void saveCache(final RunwayCache cache, final String file, final PrintStream log) {
+        if (cache == null)
+            return;
+
+        try {
+            cache.save(Paths.get(file));
+        } catch (IOException e) {
+            log.println("Failed to write cache. " + file);
+            e.printStackTrace();
+        }
+    }
 
-        return new Island(xPoints.stream().mapToInt(n -> n).toArray(),
-                yPoints.stream().mapToInt(n -> n).toArray(), xPoints.size());
+    /**
+     * Loads an island from a text or binary polygon file, see {@link PolygonLoader}
+     *
+     * @return The island or NULL if the file is not a valid polygon file
+     */
+    static Island loadPoly(final String file) throws IOException {
+        return PolygonLoader.load(Paths.get(file));
     }
 }
@@ -0,0 +1,66 @@
+package algorithms.airport;
+
+/**
+ * A runway found on a simplified island, see {@link AirportCalculator#calculateApproximate(double)}. <br>
+ * The runway is valid on the original island and the longest runway of the original
+ * island is guaranteed to be no longer than the upper bound.
+ */
+public final class ApproximateRunway {
+
+    private final Runway runway;
+    private final double upperBound;
+    private final int simplifiedVertexCount;
+    private final int outerVertexCount;
+
+    ApproximateRunway(final Runway runway, final double upperBound, final int simplifiedVertexCount,
+                      final int outerVertexCount) {
+        this.runway = runway;
+        this.upperBound = upperBound;
+        this.simplifiedVertexCount = simplifiedVertexCount;
+        this.outerVertexCount = outerVertexCount;
+    }
+
+    /**
+     * The runway, valid on the original island
+     *
+     * @return The runway or NULL if no valid runway was found
+     */
+    public Runway getRunway() {
+        return runway;
+    }
+
+    /**
+     * The length of the runway, or 0 if no valid runway was found
+     */
+    public double getLength() {
+        return runway == null ? 0 : runway.getLength();
+    }
+
+    /**
+     * The length that the longest runway of the original island cannot exceed
+     */
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    /**
+     * The most the runway can be shorter than the longest runway of the original island
+     */
+    public double getErrorBound() {
+        return Math.max(0, upperBound - getLength());
+    }
+
+    /**
+     * The number of vertices of the simplified island the runway was found on
+     */
+    public int getSimplifiedVertexCount() {
+        return simplifiedVertexCount;
+    }
+
+    /**
+     * The number of vertices of the simplified island the upper bound was found on
+     */
+    public int getOuterVertexCount() {
+        return outerVertexCount;
+    }
+}
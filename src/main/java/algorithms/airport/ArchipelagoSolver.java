@@ -0,0 +1,124 @@
+package algorithms.airport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Finds the longest runway on every island of an archipelago, see {@link PolygonLoader#loadArchipelago}. <br>
+ * Every island is solved on one fork join pool. Each island is a task of its own and
+ * large islands split their search into further tasks on the same workers, see
+ * {@link AirportCalculator#setPool}, so a few large islands among many small ones still
+ * keep every worker busy. Each island is given its own edge index on the worker that
+ * solves it, an index over the whole archipelago would also cover the water between
+ * the islands without shortening any query.
+ */
+public class ArchipelagoSolver {
+
+    private final List<Island> islands;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private CandidateGenerator candidateGenerator = new BruteForceGenerator();
+    private boolean pruning;
+    private boolean statsEnabled;
+    private RunwayCache cache;
+
+    /**
+     * Constructs a solver for the given islands
+     *
+     * @param islands The islands
+     */
+    public ArchipelagoSolver(final List<Island> islands) {
+        if (islands.isEmpty())
+            throw new IllegalArgumentException("An archipelago must have at least 1 island.");
+        this.islands = new ArrayList<>(islands);
+    }
+
+    /**
+     * The islands, in the order their runways are returned
+     */
+    public List<Island> getIslands() {
+        return islands;
+    }
+
+    /**
+     * Sets the number of worker threads shared by every island
+     *
+     * @param parallelism The number of worker threads
+     */
+    public void setParallelism(final int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the generator used by every calculation
+     *
+     * @param candidateGenerator The candidate generator
+     */
+    public void setCandidateGenerator(final CandidateGenerator candidateGenerator) {
+        if (candidateGenerator == null)
+            throw new IllegalArgumentException("Candidate generator must not be null.");
+        this.candidateGenerator = candidateGenerator;
+    }
+
+    /**
+     * Enables branch and bound pruning for every calculation, see {@link AirportCalculator#setPruning(boolean)}
+     */
+    public void setPruning(final boolean pruning) {
+        this.pruning = pruning;
+    }
+
+    /**
+     * Enables statistics for every calculation, see {@link AirportCalculator#setStatsEnabled(boolean)}
+     */
+    public void setStatsEnabled(final boolean statsEnabled) {
+        this.statsEnabled = statsEnabled;
+    }
+
+    /**
+     * Sets a cache that islands are looked up in before they are solved. No cache is used
+     * when it is NULL, which is the default.
+     *
+     * @param cache The cache
+     */
+    public void setCache(final RunwayCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Finds the longest runway on every island
+     *
+     * @return The runway of each island in the order of the islands, NULL for an island
+     * where no two vertices form a valid runway
+     */
+    public List<Runway> calculate() {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            final List<ForkJoinTask<Runway>> tasks = new ArrayList<>(islands.size());
+            for (final Island island : islands)
+                tasks.add(ForkJoinTask.adapt(() -> solve(island, pool)));
+
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+            final List<Runway> runways = new ArrayList<>(tasks.size());
+            for (final ForkJoinTask<Runway> task : tasks)
+                runways.add(task.join());
+            return runways;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Runway solve(final Island island, final ForkJoinPool pool) {
+        island.prepareForQueries();
+
+        final AirportCalculator calculator = new AirportCalculator(island);
+        calculator.setPool(pool);
+        calculator.setCandidateGenerator(candidateGenerator);
+        calculator.setPruning(pruning);
+        calculator.setStatsEnabled(statsEnabled);
+        return cache == null ? calculator.calculate() : cache.calculate(calculator);
+    }
+}
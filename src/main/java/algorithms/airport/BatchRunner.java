@@ -0,0 +1,425 @@
+package algorithms.airport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Solves many islands in one JVM on a fixed pool of worker threads. <br>
+ * Each island is solved on a single worker, so the pool size bounds both the
+ * number of threads and the number of islands held in memory at once.
+ * Results are written as soon as each island is solved, in the order the
+ * islands finish rather than the order they were given in.
+ */
+public class BatchRunner {
+
+    /**
+     * The formats a batch summary can be written in
+     */
+    public enum Format {
+        CSV, JSONL;
+
+        /**
+         * Picks the format from a file name, .jsonl and .json files are written as JSONL
+         * and every other file as CSV
+         */
+        public static Format forFile(final String file) {
+            final String name = file.toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    private final List<Path> inputs;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private CandidateGenerator candidateGenerator = new BruteForceGenerator();
+    private boolean pruning;
+    private boolean statsEnabled;
+    private Path renderDirectory;
+    private RunwayCache cache;
+
+    /**
+     * Constructs a batch over the given polygon files
+     *
+     * @param inputs The polygon files, see {@link #findInputs(String)}
+     */
+    public BatchRunner(final List<Path> inputs) {
+        this.inputs = new ArrayList<>(inputs);
+    }
+
+    /**
+     * Sets the number of islands solved at the same time
+     *
+     * @param workers The number of worker threads
+     */
+    public void setWorkers(final int workers) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Workers must be at least 1.");
+        this.workers = workers;
+    }
+
+    /**
+     * Sets the generator used by every calculation in the batch
+     *
+     * @param candidateGenerator The candidate generator
+     */
+    public void setCandidateGenerator(final CandidateGenerator candidateGenerator) {
+        if (candidateGenerator == null)
+            throw new IllegalArgumentException("Candidate generator must not be null.");
+        this.candidateGenerator = candidateGenerator;
+    }
+
+    /**
+     * Enables branch and bound pruning for every calculation in the batch,
+     * see {@link AirportCalculator#setPruning(boolean)}
+     */
+    public void setPruning(final boolean pruning) {
+        this.pruning = pruning;
+    }
+
+    /**
+     * Enables statistics for every calculation in the batch, the totals are kept by
+     * {@link CalculatorMetrics}
+     */
+    public void setStatsEnabled(final boolean statsEnabled) {
+        this.statsEnabled = statsEnabled;
+    }
+
+    /**
+     * Sets the directory that an image of each solved island is written to.
+     * Images are named after their polygon file. No images are rendered when the
+     * directory is NULL, which is the default.
+     *
+     * @param renderDirectory The directory, it is created if it does not exist
+     */
+    public void setRenderDirectory(final Path renderDirectory) {
+        this.renderDirectory = renderDirectory;
+    }
+
+    /**
+     * Sets a cache that islands are looked up in before they are solved, so repeated
+     * islands in the batch are only solved once. No cache is used when it is NULL, which
+     * is the default.
+     *
+     * @param cache The cache, it may be shared with other batches
+     */
+    public void setCache(final RunwayCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Finds the polygon files named by a batch specification. The specification is one of
+     * <ul>
+     * <li>a directory, every file directly inside it is used</li>
+     * <li>a glob such as data/*.txt or islands/**.txt</li>
+     * <li>a manifest prefixed with @, listing one file per line. Blank lines and lines
+     * starting with # are skipped and relative paths are resolved against the manifest's directory</li>
+     * </ul>
+     * Files from a directory or glob are returned in name order.
+     *
+     * @param spec The batch specification
+     * @return The polygon files
+     * @throws IOException If the directory or manifest cannot be read
+     */
+    public static List<Path> findInputs(final String spec) throws IOException {
+        if (spec.startsWith("@"))
+            return readManifest(Paths.get(spec.substring(1)));
+
+        final List<Path> files = new ArrayList<>();
+        final Path path = isGlob(spec) ? null : Paths.get(spec);
+
+        if (path != null && Files.isDirectory(path)) {
+            try (Stream<Path> listing = Files.list(path)) {
+                listing.filter(Files::isRegularFile).forEach(files::add);
+            }
+        } else if (path != null) {
+            throw new NoSuchFileException(spec, null, "Not a directory, glob or @manifest.");
+        } else {
+            // walk from the deepest directory that has no wildcards in it
+            final String[] parts = spec.replace('\\', '/').split("/");
+            final StringBuilder base = new StringBuilder();
+            int depth = 0;
+            for (final String part : parts) {
+                if (depth > 0 || isGlob(part)) {
+                    depth++;
+                } else {
+                    base.append(part).append('/');
+                }
+            }
+
+            final Path root = base.length() == 0 ? Paths.get("") : Paths.get(base.toString());
+            final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + spec);
+            final int maxDepth = spec.contains("**") ? Integer.MAX_VALUE : depth;
+
+            if (Files.isDirectory(root)) {
+                try (Stream<Path> walk = Files.walk(root, maxDepth)) {
+                    walk.filter(p -> matcher.matches(p) && Files.isRegularFile(p)).forEach(files::add);
+                }
+            }
+        }
+
+        Collections.sort(files);
+        return files;
+    }
+
+    private static List<Path> readManifest(final Path manifest) throws IOException {
+        final Path directory = manifest.toAbsolutePath().getParent();
+        final List<Path> files = new ArrayList<>();
+
+        try (BufferedReader br = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                final Path file = Paths.get(line);
+                files.add(file.isAbsolute() || directory == null ? file : directory.resolve(file).normalize());
+            }
+        }
+
+        return files;
+    }
+
+    private static boolean isGlob(final String spec) {
+        for (int i = 0; i < spec.length(); i++) {
+            final char c = spec.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{')
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Solves every island and streams one summary record per island to the output. <br>
+     * The output is flushed after each record so partial results survive a crash.
+     * Islands that cannot be read or have no valid runway are reported with an error
+     * instead of stopping the batch.
+     *
+     * @param out    The summary output
+     * @param format The summary format
+     * @return The number of islands that could not be solved
+     * @throws IOException If the summary cannot be written
+     */
+    public int run(final Writer out, final Format format) throws IOException {
+        if (renderDirectory != null)
+            Files.createDirectories(renderDirectory);
+
+        if (format == Format.CSV) {
+            out.write("file,vertices,length,x1,y1,x2,y2,millis,error\n");
+            out.flush();
+        }
+
+        final ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            final Thread thread = new Thread(r, "batch-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CompletionService<Result> completed = new ExecutorCompletionService<>(pool);
+        int failures = 0;
+
+        // images are encoded on their own threads so workers move on to the next island,
+        // the permits stop finished images piling up when encoding falls behind
+        final ExecutorService encoder = renderDirectory == null ? null : Executors.newFixedThreadPool(workers, r -> {
+            final Thread thread = new Thread(r, "batch-encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Semaphore pendingImages = new Semaphore(2 * workers);
+
+        try {
+            for (final Path input : inputs)
+                completed.submit(() -> solve(input, encoder, pendingImages));
+
+            for (int i = 0; i < inputs.size(); i++) {
+                Result result;
+                try {
+                    result = completed.take().get().awaitImage();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for results.", e);
+                } catch (ExecutionException e) {
+                    // solve() reports its own failures, so this is a bug in the calculator
+                    throw new IllegalStateException(e.getCause());
+                }
+
+                if (result.error != null)
+                    failures++;
+
+                out.write(format == Format.CSV ? result.toCsv() : result.toJson());
+                out.write('\n');
+                out.flush();
+            }
+        } finally {
+            pool.shutdownNow();
+            if (encoder != null)
+                encoder.shutdownNow();
+        }
+
+        return failures;
+    }
+
+    /**
+     * Loads, solves and optionally renders one island
+     *
+     * @param encoder       The executor that encodes images
+     * @param pendingImages The permits for images that are still being encoded
+     */
+    private Result solve(final Path input, final Executor encoder, final Semaphore pendingImages) {
+        final Island island;
+        try {
+            island = Application.loadPoly(input.toString());
+        } catch (IOException | RuntimeException e) {
+            return new Result(input, 0, null, 0, "Failed to read file. " + e.getMessage());
+        }
+
+        if (island == null)
+            return new Result(input, 0, null, 0, "Invalid file format.");
+
+        final long startTime = System.nanoTime();
+        island.prepareForQueries();
+
+        final AirportCalculator calculator = new AirportCalculator(island);
+        calculator.setCandidateGenerator(candidateGenerator);
+        calculator.setPruning(pruning);
+        calculator.setStatsEnabled(statsEnabled);
+        final Runway runway = cache == null ? calculator.calculate() : cache.calculate(calculator);
+        final double millis = (System.nanoTime() - startTime) / 1000000.0;
+
+        if (runway == null)
+            return new Result(input, island.size(), null, millis, "No two vertices can form a valid runway.");
+
+        if (renderDirectory != null) {
+            String name = input.getFileName().toString();
+            if (name.lastIndexOf('.') > 0)
+                name = name.substring(0, name.lastIndexOf('.'));
+
+            try {
+                pendingImages.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Result(input, island.size(), runway, millis, "Interrupted before writing image.");
+            }
+
+            final CompletableFuture<Void> image;
+            try {
+                image = new Renderer(island, runway).writePngAsync(renderDirectory.resolve(name + ".png").toString(),
+                        Application.IMAGE_WIDTH, encoder);
+            } catch (RuntimeException e) {
+                pendingImages.release();
+                throw e;
+            }
+            image.whenComplete((written, e) -> pendingImages.release());
+
+            return new Result(input, island.size(), runway, millis, null, image);
+        }
+
+        return new Result(input, island.size(), runway, millis, null);
+    }
+
+    /**
+     * Quotes a string for a JSON record
+     */
+    static String jsonString(final String value) {
+        final StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * The outcome of solving one island
+     */
+    private static class Result {
+
+        private final Path file;
+        private final int vertices;
+        private final Runway runway;
+        private final double millis;
+        private final String error;
+        private final CompletableFuture<Void> image;
+
+        Result(final Path file, final int vertices, final Runway runway, final double millis, final String error) {
+            this(file, vertices, runway, millis, error, null);
+        }
+
+        Result(final Path file, final int vertices, final Runway runway, final double millis, final String error,
+               final CompletableFuture<Void> image) {
+            this.file = file;
+            this.vertices = vertices;
+            this.runway = runway;
+            this.millis = millis;
+            this.error = error;
+            this.image = image;
+        }
+
+        /**
+         * Waits for the island's image to be written
+         *
+         * @return This result, or a failed result if the image could not be written
+         */
+        Result awaitImage() {
+            if (image == null)
+                return this;
+
+            try {
+                image.join();
+                return this;
+            } catch (CompletionException e) {
+                return new Result(file, vertices, runway, millis, "Failed to write image. " + e.getCause().getMessage());
+            }
+        }
+
+        String toCsv() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(csvField(file.toString())).append(',').append(vertices).append(',');
+            if (runway != null) {
+                sb.append(runway.getLength()).append(',')
+                        .append(runway.getX1()).append(',').append(runway.getY1()).append(',')
+                        .append(runway.getX2()).append(',').append(runway.getY2());
+            } else {
+                sb.append(",,,,");
+            }
+            sb.append(',').append(String.format(Locale.ROOT, "%.3f", millis)).append(',');
+            if (error != null)
+                sb.append(csvField(error));
+            return sb.toString();
+        }
+
+        String toJson() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append("{\"file\":").append(jsonString(file.toString()))
+                    .append(",\"vertices\":").append(vertices);
+            if (runway != null) {
+                sb.append(",\"length\":").append(runway.getLength())
+                        .append(",\"start\":[").append(runway.getX1()).append(',').append(runway.getY1()).append(']')
+                        .append(",\"end\":[").append(runway.getX2()).append(',').append(runway.getY2()).append(']');
+            }
+            sb.append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", millis));
+            if (error != null)
+                sb.append(",\"error\":").append(jsonString(error));
+            return sb.append('}').toString();
+        }
+
+        private static String csvField(final String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0)
+                return value;
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
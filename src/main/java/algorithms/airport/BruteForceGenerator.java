@@ -0,0 +1,22 @@
+package algorithms.airport;
+
+/**
+ * Generates every vertex pair, leaving each one to be tested by {@link Island#containsLine}. <br>
+ * This is the reference the other generators are checked against.
+ */
+public class BruteForceGenerator implements CandidateGenerator {
+
+    @Override
+    public int candidates(final Island island, final int a, final int[] vertices, final boolean[] verified) {
+        // n choose 2 segments to test
+        // If we check pt 1 and pt 4, we will never check pt 4 with pt 1
+        // This is the handshake problem
+        int count = 0;
+        for (int b = a + 1; b < island.npoints; b++) {
+            vertices[count] = b;
+            verified[count] = false;
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,83 @@
+package algorithms.airport;
+
+/**
+ * The calculator totals published over JMX, see {@link CalculatorMetrics}
+ */
+public interface CalculatorMXBean {
+
+    /**
+     * The number of calculations recorded
+     */
+    long getCalculationCount();
+
+    /**
+     * The number of calculations solved by the convex fast path
+     */
+    long getConvexCount();
+
+    /**
+     * The number of vertex pairs given by the candidate generators
+     */
+    long getPairCount();
+
+    /**
+     * The number of pairs skipped by branch and bound pruning
+     */
+    long getPrunedCount();
+
+    /**
+     * The number of pairs accepted because their vertices are neighbours
+     */
+    long getAdjacentCount();
+
+    /**
+     * The number of pairs rejected because their line crosses an edge
+     */
+    long getCrossingRejectCount();
+
+    /**
+     * The number of pairs rejected because part of their line lies outside the island
+     */
+    long getMidpointRejectCount();
+
+    /**
+     * The number of times a valid line was extended towards the coast
+     */
+    long getExtendCount();
+
+    /**
+     * The number of intersections computed between lines and edges
+     */
+    long getIntersectionCount();
+
+    /**
+     * The time spent in all recorded calculations
+     */
+    double getTotalMillis();
+
+    /**
+     * The time the last recorded calculation took
+     */
+    double getLastMillis();
+
+    /**
+     * The time the slowest recorded calculation took
+     */
+    double getSlowestMillis();
+
+    /**
+     * The number of vertices of the island in the slowest recorded calculation
+     */
+    int getSlowestVertexCount();
+
+    /**
+     * The most intersections computed per vertex pair by any recorded calculation,
+     * high values point at islands where lines cross many edges
+     */
+    double getWorstIntersectionsPerPair();
+
+    /**
+     * Clears every total
+     */
+    void reset();
+}
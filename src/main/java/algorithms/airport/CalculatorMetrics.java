@@ -0,0 +1,164 @@
+package algorithms.airport;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Totals of the {@link CalculatorStats} from every calculation with statistics enabled. <br>
+ * The totals are shared by the whole JVM and can be published to the platform MBean
+ * server as {@value #OBJECT_NAME}, so slow or pathological islands can be spotted from
+ * any JMX console.
+ */
+public final class CalculatorMetrics implements CalculatorMXBean {
+
+    /**
+     * The name the metrics are registered under
+     */
+    public static final String OBJECT_NAME = "algorithms.airport:type=Calculator";
+
+    private static final CalculatorMetrics INSTANCE = new CalculatorMetrics();
+
+    private long calculationCount;
+    private long convexCount;
+    private final long[] counts = new long[CalculatorStats.COUNTERS];
+    private long totalNanos;
+    private long lastNanos;
+    private long slowestNanos;
+    private int slowestVertexCount;
+    private double worstIntersectionsPerPair;
+
+    private CalculatorMetrics() {
+    }
+
+    /**
+     * The metrics shared by every calculator
+     */
+    public static CalculatorMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Publishes the metrics to the platform MBean server, registering them again has no effect
+     *
+     * @throws IllegalStateException If the metrics cannot be registered
+     */
+    public static void registerMBean() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // already published
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Adds the statistics of one calculation to the totals
+     */
+    synchronized void record(final CalculatorStats stats) {
+        calculationCount++;
+        if (stats.isConvex())
+            convexCount++;
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += stats.count(i);
+
+        totalNanos += stats.getTotalNanos();
+        lastNanos = stats.getTotalNanos();
+        if (lastNanos >= slowestNanos) {
+            slowestNanos = lastNanos;
+            slowestVertexCount = stats.getVertexCount();
+        }
+
+        if (stats.getPairCount() > 0) {
+            worstIntersectionsPerPair = Math.max(worstIntersectionsPerPair,
+                    (double) stats.getIntersectionCount() / stats.getPairCount());
+        }
+    }
+
+    @Override
+    public synchronized long getCalculationCount() {
+        return calculationCount;
+    }
+
+    @Override
+    public synchronized long getConvexCount() {
+        return convexCount;
+    }
+
+    @Override
+    public synchronized long getPairCount() {
+        return counts[CalculatorStats.PAIRS];
+    }
+
+    @Override
+    public synchronized long getPrunedCount() {
+        return counts[CalculatorStats.PRUNED];
+    }
+
+    @Override
+    public synchronized long getAdjacentCount() {
+        return counts[CalculatorStats.ADJACENT];
+    }
+
+    @Override
+    public synchronized long getCrossingRejectCount() {
+        return counts[CalculatorStats.CROSSING_REJECTS];
+    }
+
+    @Override
+    public synchronized long getMidpointRejectCount() {
+        return counts[CalculatorStats.MIDPOINT_REJECTS];
+    }
+
+    @Override
+    public synchronized long getExtendCount() {
+        return counts[CalculatorStats.EXTENDS];
+    }
+
+    @Override
+    public synchronized long getIntersectionCount() {
+        return counts[CalculatorStats.INTERSECTIONS];
+    }
+
+    @Override
+    public synchronized double getTotalMillis() {
+        return totalNanos / 1000000.0;
+    }
+
+    @Override
+    public synchronized double getLastMillis() {
+        return lastNanos / 1000000.0;
+    }
+
+    @Override
+    public synchronized double getSlowestMillis() {
+        return slowestNanos / 1000000.0;
+    }
+
+    @Override
+    public synchronized int getSlowestVertexCount() {
+        return slowestVertexCount;
+    }
+
+    @Override
+    public synchronized double getWorstIntersectionsPerPair() {
+        return worstIntersectionsPerPair;
+    }
+
+    @Override
+    public synchronized void reset() {
+        calculationCount = 0;
+        convexCount = 0;
+        Arrays.fill(counts, 0);
+        totalNanos = 0;
+        lastNanos = 0;
+        slowestNanos = 0;
+        slowestVertexCount = 0;
+        worstIntersectionsPerPair = 0;
+    }
+}
@@ -0,0 +1,161 @@
+package algorithms.airport;
+
+import java.util.Locale;
+
+/**
+ * Counters and timings from one calculation, see {@link AirportCalculator#setStatsEnabled(boolean)}. <br>
+ * Counters are kept per worker in the worker's {@link Scratch} and summed when the
+ * calculation ends, so collecting them adds no contention between workers.
+ */
+public final class CalculatorStats {
+
+    /**
+     * Counter indices into {@link Scratch#counts}
+     */
+    static final int PAIRS = 0;
+    static final int PRUNED = 1;
+    static final int ADJACENT = 2;
+    static final int CROSSING_REJECTS = 3;
+    static final int MIDPOINT_REJECTS = 4;
+    static final int VALID = 5;
+    static final int EXTENDS = 6;
+    static final int INTERSECTIONS = 7;
+    static final int COUNTERS = 8;
+
+    private final int vertexCount;
+    private final boolean convex;
+    private final long[] counts;
+    private final long hullNanos;
+    private final long seedNanos;
+    private final long searchNanos;
+    private final long totalNanos;
+
+    CalculatorStats(final int vertexCount, final boolean convex, final long[] counts, final long hullNanos, final long seedNanos,
+                    final long searchNanos, final long totalNanos) {
+        this.vertexCount = vertexCount;
+        this.convex = convex;
+        this.counts = counts.clone();
+        this.hullNanos = hullNanos;
+        this.seedNanos = seedNanos;
+        this.searchNanos = searchNanos;
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * The number of vertices of the island
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Whether the island was solved by the convex fast path, see {@link AirportCalculator#setConvexFastPath(boolean)}
+     */
+    public boolean isConvex() {
+        return convex;
+    }
+
+    /**
+     * The number of vertex pairs given by the candidate generator
+     */
+    public long getPairCount() {
+        return counts[PAIRS];
+    }
+
+    /**
+     * The number of pairs skipped by branch and bound pruning
+     */
+    public long getPrunedCount() {
+        return counts[PRUNED];
+    }
+
+    /**
+     * The number of pairs accepted without a test because their vertices are neighbours
+     */
+    public long getAdjacentCount() {
+        return counts[ADJACENT];
+    }
+
+    /**
+     * The number of pairs rejected because their line crosses an edge
+     */
+    public long getCrossingRejectCount() {
+        return counts[CROSSING_REJECTS];
+    }
+
+    /**
+     * The number of pairs rejected because part of their line lies outside the island
+     */
+    public long getMidpointRejectCount() {
+        return counts[MIDPOINT_REJECTS];
+    }
+
+    /**
+     * The number of pairs that form a valid line and were extended to a runway
+     */
+    public long getValidCount() {
+        return counts[VALID];
+    }
+
+    /**
+     * The number of times a valid line was extended towards the coast
+     */
+    public long getExtendCount() {
+        return counts[EXTENDS];
+    }
+
+    /**
+     * The number of intersections computed between lines and edges
+     */
+    public long getIntersectionCount() {
+        return counts[INTERSECTIONS];
+    }
+
+    /**
+     * The time spent building the convex hull, 0 without pruning
+     */
+    public long getHullNanos() {
+        return hullNanos;
+    }
+
+    /**
+     * The time spent testing the longest pairs before the search, 0 without pruning
+     */
+    public long getSeedNanos() {
+        return seedNanos;
+    }
+
+    /**
+     * The time spent searching every pair
+     */
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    /**
+     * The time the whole calculation took
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    long count(final int counter) {
+        return counts[counter];
+    }
+
+    @Override
+    public String toString() {
+        return "Vertices: " + vertexCount + (convex ? " (convex)" : "") + '\n'
+                + "Pairs: " + getPairCount() + " (pruned " + getPrunedCount() + ", adjacent " + getAdjacentCount()
+                + ", valid " + getValidCount() + ")\n"
+                + "Rejected: " + getCrossingRejectCount() + " by crossings, " + getMidpointRejectCount()
+                + " by midpoints\n"
+                + "Extends: " + getExtendCount() + ", intersections: " + getIntersectionCount() + '\n'
+                + "Time: hull " + millis(hullNanos) + " ms, seed " + millis(seedNanos) + " ms, search "
+                + millis(searchNanos) + " ms, total " + millis(totalNanos) + " ms";
+    }
+
+    private static String millis(final long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000000.0);
+    }
+}
@@ -0,0 +1,22 @@
+package algorithms.airport;
+
+/**
+ * Chooses which vertex pairs the {@link AirportCalculator} tests as runways. <br>
+ * Implementations must be thread safe, rows are requested concurrently when
+ * the calculator runs in parallel.
+ */
+public interface CandidateGenerator {
+
+    /**
+     * Finds the vertices that may form a valid runway with vertex a. Every vertex b
+     * greater than a that forms a valid runway with a must be returned, in ascending order.
+     *
+     * @param island   The island
+     * @param a        The index of the first vertex
+     * @param vertices Receives the indices of the candidate vertices
+     * @param verified Receives whether each candidate is already known to be contained by the island,
+     *                 candidates that are not verified are tested with {@link Island#containsLine}
+     * @return The number of candidates written
+     */
+    int candidates(Island island, int a, int[] vertices, boolean[] verified);
+}
@@ -0,0 +1,129 @@
+package algorithms.airport;
+
+/**
+ * Finds the longest runway on a convex island in linear time. <br>
+ * Every line between two vertices of a convex island is valid and cannot be extended
+ * past a vertex where the coast turns, so the longest runway is the diameter, the
+ * farthest pair of vertices. The diameter is found with rotating calipers, which walk
+ * every antipodal pair of vertices once.
+ */
+final class ConvexDiameter {
+
+    /**
+     * How far from collinear every turn of the coast must be, relative to the lengths of
+     * the two edges, for the island to be treated as convex. Islands with straighter turns
+     * are left to the general search, where rounding cannot make them look convex.
+     */
+    private static final double TURN_MARGIN = 0.000000001;
+
+    private ConvexDiameter() {
+    }
+
+    /**
+     * Checks if an island is strictly convex. Every turn of the coast must go the same
+     * way, clearly away from straight, and the coast must wind around the island exactly
+     * once, which rules out self intersecting stars. An island with lakes is never convex.
+     *
+     * @param island The island
+     * @return True if the island is strictly convex
+     */
+    static boolean isConvex(final Island island) {
+        if (island.getLakeCount() > 0)
+            return false;
+
+        final int n = island.npoints;
+        final double[] x = island.xpoints;
+        final double[] y = island.ypoints;
+
+        int sign = 0;
+        double turning = 0;
+        double lastDx = x[0] - x[n - 1];
+        double lastDy = y[0] - y[n - 1];
+
+        for (int i = 0; i < n; i++) {
+            final int j = i + 1 == n ? 0 : i + 1;
+            final double dx = x[j] - x[i];
+            final double dy = y[j] - y[i];
+
+            final double cross = lastDx * dy - lastDy * dx;
+            final double margin = TURN_MARGIN * Math.sqrt((lastDx * lastDx + lastDy * lastDy) * (dx * dx + dy * dy));
+            if (Math.abs(cross) <= margin)
+                return false;
+
+            final int turn = cross > 0 ? 1 : -1;
+            if (sign == 0) {
+                sign = turn;
+            } else if (turn != sign) {
+                return false;
+            }
+
+            turning += Math.atan2(cross, lastDx * dx + lastDy * dy);
+            lastDx = dx;
+            lastDy = dy;
+        }
+
+        // a coast that winds once turns through a full circle, a star winds twice or more
+        return Math.abs(turning) < 3 * Math.PI;
+    }
+
+    /**
+     * Finds the farthest pair of vertices of a strictly convex island. When several pairs
+     * are equally far apart the pair the general search would return is chosen, the one
+     * with the highest first vertex and then the highest second vertex.
+     *
+     * @param island The island, see {@link #isConvex(Island)}
+     * @return The pair packed as a * n + b with a less than b
+     */
+    static long diameter(final Island island) {
+        final int n = island.npoints;
+        final double[] x = island.xpoints;
+        final double[] y = island.ypoints;
+
+        // the turns all go one way, the first one tells which
+        final double orientation = Math.signum((x[0] - x[n - 1]) * (y[1] - y[0]) - (y[0] - y[n - 1]) * (x[1] - x[0]));
+
+        long best = -1;
+        double bestDistance = -1;
+
+        int j = 1;
+        for (int i = 0; i < n; i++) {
+            final int next = i + 1 == n ? 0 : i + 1;
+
+            // advance the opposite caliper until its edge turns against the edge (i, next)
+            double turn = 0;
+            for (int steps = 0; steps < n; steps++) {
+                turn = orientation * edgeCross(x, y, i, j);
+                if (turn <= 0)
+                    break;
+                j = j + 1 == n ? 0 : j + 1;
+            }
+
+            // j is antipodal to both ends of the edge, and so is the vertex after j when the edges are parallel
+            final int after = j + 1 == n ? 0 : j + 1;
+            for (int k = 0; k < (turn == 0 ? 4 : 2); k++) {
+                final int a = k % 2 == 0 ? i : next;
+                final int b = k < 2 ? j : after;
+                if (a == b)
+                    continue;
+
+                final long pair = a < b ? (long) a * n + b : (long) b * n + a;
+                final double distance = Geometry.distance(x[a], y[a], x[b], y[b]);
+                if (distance > bestDistance || distance == bestDistance && pair > best) {
+                    bestDistance = distance;
+                    best = pair;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * The cross product of the edge starting at vertex i and the edge starting at vertex j
+     */
+    private static double edgeCross(final double[] x, final double[] y, final int i, final int j) {
+        final int ni = i + 1 == x.length ? 0 : i + 1;
+        final int nj = j + 1 == x.length ? 0 : j + 1;
+        return (x[ni] - x[i]) * (y[nj] - y[j]) - (y[ni] - y[i]) * (x[nj] - x[j]);
+    }
+}
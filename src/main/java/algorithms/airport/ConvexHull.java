@@ -0,0 +1,131 @@
+package algorithms.airport;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The convex hull of an island, with its vertices in counter clockwise order. <br>
+ * Every runway lies inside the hull, so the hull gives cheap upper bounds on runway length.
+ */
+public final class ConvexHull {
+
+    private final double[] xpoints;
+    private final double[] ypoints;
+    private final int[] indices;
+    private final int npoints;
+
+    /**
+     * Builds the convex hull of an island using Andrew's monotone chain
+     *
+     * @param island The island
+     */
+    public ConvexHull(final Island island) {
+        final int n = island.npoints;
+        final Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> island.xpoints[i]).thenComparingDouble(i -> island.ypoints[i]));
+
+        final double[] hx = new double[2 * n];
+        final double[] hy = new double[2 * n];
+        final int[] hi = new int[2 * n];
+        int k = 0;
+
+        // lower hull, then upper hull, dropping collinear points
+        for (int pass = 0; pass < 2; pass++) {
+            final int start = k;
+            for (int m = 0; m < n; m++) {
+                final int i = order[pass == 0 ? m : n - 1 - m];
+                final double px = island.xpoints[i];
+                final double py = island.ypoints[i];
+
+                while (k >= start + 2 && Geometry.orientation(hx[k - 2], hy[k - 2], hx[k - 1], hy[k - 1], px, py) <= 0)
+                    k--;
+
+                hx[k] = px;
+                hy[k] = py;
+                hi[k] = i;
+                k++;
+            }
+            // the last point of each chain is the first point of the next
+            k--;
+        }
+
+        this.npoints = Math.max(k, 1);
+        this.xpoints = Arrays.copyOf(hx, npoints);
+        this.ypoints = Arrays.copyOf(hy, npoints);
+        this.indices = Arrays.copyOf(hi, npoints);
+    }
+
+    /**
+     * The number of vertices on the hull
+     */
+    public int size() {
+        return npoints;
+    }
+
+    /**
+     * The x value of the i-th hull vertex
+     */
+    public double getX(final int i) {
+        return xpoints[i];
+    }
+
+    /**
+     * The y value of the i-th hull vertex
+     */
+    public double getY(final int i) {
+        return ypoints[i];
+    }
+
+    /**
+     * The index of the island vertex at the i-th hull vertex
+     */
+    int getIndex(final int i) {
+        return indices[i];
+    }
+
+    /**
+     * Calculates the length of the chord that the hull cuts from a line <br>
+     * The hull is treated as a closed set so a line along one of its edges
+     * has the length of that edge.
+     *
+     * @param px The x value of a point on the line
+     * @param py The y value of a point on the line
+     * @param dx The x value of the line's direction
+     * @param dy The y value of the line's direction
+     * @return The length of the chord or 0 if the line misses the hull
+     */
+    public double chordLength(final double px, final double py, final double dx, final double dy) {
+        if (npoints < 3)
+            return npoints == 2 ? Geometry.distance(xpoints[0], ypoints[0], xpoints[1], ypoints[1]) : 0;
+
+        double tMin = Double.NEGATIVE_INFINITY;
+        double tMax = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < npoints; i++) {
+            final int j = i + 1 == npoints ? 0 : i + 1;
+            final double ex = xpoints[j] - xpoints[i];
+            final double ey = ypoints[j] - ypoints[i];
+
+            // the inside of the hull is to the left of every edge
+            final double offset = ex * (py - ypoints[i]) - ey * (px - xpoints[i]);
+            final double slope = ex * dy - ey * dx;
+
+            if (slope == 0) {
+                if (offset < 0)
+                    return 0;
+            } else if (slope > 0) {
+                tMin = Math.max(tMin, -offset / slope);
+            } else {
+                tMax = Math.min(tMax, -offset / slope);
+            }
+        }
+
+        if (tMax <= tMin)
+            return 0;
+
+        return (tMax - tMin) * Math.sqrt(dx * dx + dy * dy);
+    }
+}
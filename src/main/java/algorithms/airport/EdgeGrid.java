@@ -0,0 +1,245 @@
+package algorithms.airport;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the edges of an island. <br>
+ * Each cell lists the edges that pass through it so a query only has to test
+ * the edges in the cells along its own path instead of every edge in the island.
+ * Cells are padded slightly so rounding can never drop an edge from a query.
+ */
+final class EdgeGrid {
+
+    /**
+     * The fraction of a cell that each cell is padded by
+     */
+    private static final double PADDING = 0.000001;
+
+    private final double minX;
+    private final double minY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * The edges in cell c are cellEdges[cellStart[c]] to cellEdges[cellStart[c + 1] - 1]
+     */
+    private final int[] cellStart;
+    private final int[] cellEdges;
+
+    /**
+     * Builds a grid with roughly one cell per edge
+     *
+     * @param island The island to index
+     */
+    EdgeGrid(final Island island) {
+        final int n = island.npoints;
+
+        final double width = island.getWidth() > 0 ? island.getWidth() : 1;
+        final double height = island.getHeight() > 0 ? island.getHeight() : 1;
+
+        this.minX = island.getMinX();
+        this.minY = island.getMinY();
+        this.columns = (int) Math.max(1, Math.min(n, Math.round(Math.sqrt(n * width / height))));
+        this.rows = Math.max(1, (n + columns - 1) / columns);
+        this.cellWidth = width / columns;
+        this.cellHeight = height / rows;
+
+        // count the edges in each cell, then fill the cells in a second pass
+        final int[][] edgeCells = new int[n][];
+        final int[] counts = new int[columns * rows + 1];
+        int[] buffer = new int[16];
+
+        for (int i = 0; i < n; i++) {
+            final int j = island.next(i);
+            int count;
+            while ((count = cells(island.xpoints[i], island.ypoints[i], island.xpoints[j], island.ypoints[j], buffer)) < 0)
+                buffer = new int[buffer.length * 2];
+
+            edgeCells[i] = Arrays.copyOf(buffer, count);
+            for (int k = 0; k < count; k++)
+                counts[buffer[k] + 1]++;
+        }
+
+        for (int c = 1; c < counts.length; c++)
+            counts[c] += counts[c - 1];
+
+        this.cellStart = counts.clone();
+        this.cellEdges = new int[counts[counts.length - 1]];
+
+        for (int i = 0; i < n; i++) {
+            for (final int cell : edgeCells[i])
+                cellEdges[counts[cell]++] = i;
+        }
+    }
+
+    /**
+     * Collects every edge that could touch the given line segment into the scratch
+     * edge buffer. Each edge is collected once, in no particular order.
+     *
+     * @param scratch The scratch that receives the edge indices
+     * @return The number of edges collected
+     */
+    int collect(final double x1, final double y1, final double x2, final double y2, final Scratch scratch) {
+        final int mark = scratch.nextQuery();
+        final int[] marks = scratch.marks;
+        final int[] edges = scratch.edges;
+        int count = 0;
+
+        final int lastColumn = column(Math.max(x1, x2) + cellWidth * PADDING);
+        for (int c = column(Math.min(x1, x2) - cellWidth * PADDING); c <= lastColumn; c++) {
+            final int lastRow = lastRow(x1, y1, x2, y2, c);
+            for (int r = firstRow(x1, y1, x2, y2, c); r <= lastRow; r++) {
+                final int cell = r * columns + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    final int edge = cellEdges[k];
+                    if (marks[edge] != mark) {
+                        marks[edge] = mark;
+                        edges[count++] = edge;
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Collects the edges that could touch the part of a line segment inside one column <br>
+     * Edges already collected since the last call to {@link Scratch#nextQuery()} are skipped,
+     * so a ray can be walked one column at a time. The edges are written to the start
+     * of the scratch edge buffer.
+     *
+     * @param column  The column, see {@link #column(double)}
+     * @param scratch The scratch that receives the edge indices
+     * @return The number of edges collected
+     */
+    int collectColumn(final double x1, final double y1, final double x2, final double y2, final int column,
+                      final Scratch scratch) {
+        final int mark = scratch.query;
+        final int[] marks = scratch.marks;
+        final int[] edges = scratch.edges;
+        int count = 0;
+
+        final int lastRow = lastRow(x1, y1, x2, y2, column);
+        for (int r = firstRow(x1, y1, x2, y2, column); r <= lastRow; r++) {
+            final int cell = r * columns + column;
+            for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                final int edge = cellEdges[k];
+                if (marks[edge] != mark) {
+                    marks[edge] = mark;
+                    edges[count++] = edge;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Collects every edge that could cross the horizontal ray from a point towards
+     * positive x into the scratch edge buffer. Each edge is collected once.
+     *
+     * @param scratch The scratch that receives the edge indices
+     * @return The number of edges collected
+     */
+    int collectRow(final double x, final double y, final Scratch scratch) {
+        final int mark = scratch.nextQuery();
+        final int[] marks = scratch.marks;
+        final int[] edges = scratch.edges;
+        int count = 0;
+
+        final int row = row(y);
+        for (int c = column(x - cellWidth * PADDING); c < columns; c++) {
+            final int cell = row * columns + c;
+            for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                final int edge = cellEdges[k];
+                if (marks[edge] != mark) {
+                    marks[edge] = mark;
+                    edges[count++] = edge;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * The x value of the left or right side of a column
+     */
+    double columnEdge(final int column, final boolean right) {
+        return minX + (right ? column + 1 : column) * cellWidth;
+    }
+
+    /**
+     * The amount each column is padded by on either side
+     */
+    double columnPadding() {
+        return cellWidth * PADDING;
+    }
+
+    /**
+     * Writes the cells a line segment passes through into the buffer
+     *
+     * @return The number of cells or -1 if the buffer is too small
+     */
+    private int cells(final double x1, final double y1, final double x2, final double y2, final int[] buffer) {
+        int count = 0;
+
+        final int lastColumn = column(Math.max(x1, x2) + cellWidth * PADDING);
+        for (int c = column(Math.min(x1, x2) - cellWidth * PADDING); c <= lastColumn; c++) {
+            final int lastRow = lastRow(x1, y1, x2, y2, c);
+            for (int r = firstRow(x1, y1, x2, y2, c); r <= lastRow; r++) {
+                if (count == buffer.length)
+                    return -1;
+                buffer[count++] = r * columns + c;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * The first row in the given column that the line segment passes through
+     */
+    private int firstRow(final double x1, final double y1, final double x2, final double y2, final int column) {
+        return row(Math.min(yAtColumnEdge(x1, y1, x2, y2, column, false), yAtColumnEdge(x1, y1, x2, y2, column, true))
+                - cellHeight * PADDING);
+    }
+
+    /**
+     * The last row in the given column that the line segment passes through
+     */
+    private int lastRow(final double x1, final double y1, final double x2, final double y2, final int column) {
+        return row(Math.max(yAtColumnEdge(x1, y1, x2, y2, column, false), yAtColumnEdge(x1, y1, x2, y2, column, true))
+                + cellHeight * PADDING);
+    }
+
+    /**
+     * Finds the y value where the line segment enters or leaves a column <br>
+     * The segment is clamped to its end points so a column it only partly
+     * crosses uses the y value of the end point inside the column.
+     */
+    private double yAtColumnEdge(final double x1, final double y1, final double x2, final double y2,
+                                 final int column, final boolean right) {
+        final double dx = x2 - x1;
+        if (dx == 0)
+            return right ? y2 : y1;
+
+        final double edgeX = minX + (right ? column + 1 : column) * cellWidth;
+        final double t = Math.max(0, Math.min(1, (edgeX - x1) / dx));
+        return y1 + t * (y2 - y1);
+    }
+
+    /**
+     * The column containing the given x value, clamped to the grid
+     */
+    int column(final double x) {
+        return (int) Math.max(0, Math.min(columns - 1, Math.floor((x - minX) / cellWidth)));
+    }
+
+    private int row(final double y) {
+        return (int) Math.max(0, Math.min(rows - 1, Math.floor((y - minY) / cellHeight)));
+    }
+}
@@ -0,0 +1,469 @@
+package algorithms.airport;
+
+/**
+ * Allocation free geometry over raw co-ordinates. <br>
+ * Results that need more than one value are written into caller owned
+ * scratch buffers so the methods can be called in tight loops without
+ * creating garbage.
+ * <br>
+ * <br>
+ * Every decision about which side of a line a point is on is exact, using adaptive
+ * predicates in the style of Shewchuk. The determinant is evaluated in floating point
+ * and its sign is trusted when it is larger than a bound on its rounding error, which
+ * is almost always. Otherwise it is evaluated again exactly, as a sum of floating point
+ * expansions, so nearly collinear points cost more but are never misjudged. The last
+ * resort of that exact evaluation is the only place a small buffer is allocated. Only
+ * co-ordinates whose products overflow or underflow are out of reach.
+ */
+public final class Geometry {
+
+    /**
+     * The number of doubles used to store each intersection in a scratch buffer <br>
+     * An intersection is stored as its x value, its y value and a sort key
+     */
+    public static final int STRIDE = 3;
+
+    /**
+     * Half the distance from 1 to the next double, the relative error of one rounding
+     */
+    private static final double EPSILON = Math.ulp(1.0) / 2;
+
+    /**
+     * Splits a double into two halves whose products with other halves are exact, 2^27 + 1
+     */
+    private static final double SPLITTER = 134217729.0;
+
+    /**
+     * A cross product of two differences has the right sign when its magnitude is more than
+     * this fraction of the sum of the magnitudes of its two products
+     */
+    private static final double CROSS_ERROR_BOUND = (3 + 16 * EPSILON) * EPSILON;
+
+    private Geometry() {
+    }
+
+    /**
+     * Calculates the distance between two points
+     */
+    public static double distance(final double x1, final double y1, final double x2, final double y2) {
+        final double dx = x2 - x1;
+        final double dy = y2 - y1;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Calculates the squared distance between two points
+     */
+    public static double distanceSq(final double x1, final double y1, final double x2, final double y2) {
+        final double dx = x2 - x1;
+        final double dy = y2 - y1;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Calculates the length of the chord that an axis aligned box cuts from a line
+     *
+     * @param px The x value of a point on the line
+     * @param py The y value of a point on the line
+     * @param dx The x value of the line's direction
+     * @param dy The y value of the line's direction
+     * @return The length of the chord or 0 if the line misses the box
+     */
+    public static double boxChordLength(final double minX, final double minY, final double maxX, final double maxY,
+                                        final double px, final double py, final double dx, final double dy) {
+        double tMin = Double.NEGATIVE_INFINITY;
+        double tMax = Double.POSITIVE_INFINITY;
+
+        if (dx != 0) {
+            final double t1 = (minX - px) / dx;
+            final double t2 = (maxX - px) / dx;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        } else if (px < minX || px > maxX) {
+            return 0;
+        }
+
+        if (dy != 0) {
+            final double t1 = (minY - py) / dy;
+            final double t2 = (maxY - py) / dy;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        } else if (py < minY || py > maxY) {
+            return 0;
+        }
+
+        if (tMax <= tMin)
+            return 0;
+
+        return (tMax - tMin) * Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Finds where a ray leaves an axis aligned box
+     *
+     * @param px The x value of the point the ray starts at
+     * @param py The y value of the point the ray starts at
+     * @param dx The x value of the ray's direction
+     * @param dy The y value of the ray's direction
+     * @return The parameter t of the exit point (px + t * dx, py + t * dy)
+     */
+    public static double boxExitParameter(final double minX, final double minY, final double maxX, final double maxY,
+                                          final double px, final double py, final double dx, final double dy) {
+        double exit = Double.POSITIVE_INFINITY;
+
+        if (dx != 0)
+            exit = Math.min(exit, ((dx > 0 ? maxX : minX) - px) / dx);
+        if (dy != 0)
+            exit = Math.min(exit, ((dy > 0 ? maxY : minY) - py) / dy);
+
+        return exit == Double.POSITIVE_INFINITY ? 0 : Math.max(exit, 0);
+    }
+
+    /**
+     * Finds the orientation of three points exactly
+     *
+     * @return 1 if a, b, c turn counter clockwise, -1 if they turn clockwise or 0 if they are collinear
+     */
+    public static int orientation(final double ax, final double ay, final double bx, final double by,
+                                  final double cx, final double cy) {
+        return crossSign(ax, ay, bx, by, ax, ay, cx, cy);
+    }
+
+    /**
+     * Finds the sign of the cross product of (b - a) and (d - c) exactly <br>
+     * A direction that is already known exactly, such as a ray's, can be passed as b with a at the origin.
+     *
+     * @return 1 if d - c points counter clockwise of b - a, -1 if clockwise or 0 if they are parallel
+     */
+    public static int crossSign(final double ax, final double ay, final double bx, final double by,
+                                final double cx, final double cy, final double dx, final double dy) {
+        final double left = (bx - ax) * (dy - cy);
+        final double right = (by - ay) * (dx - cx);
+        final double det = left - right;
+
+        // the rounded sign is trusted once the determinant is clear of its rounding error
+        if (Math.abs(det) > crossError(left, right))
+            return det > 0 ? 1 : -1;
+
+        return slowCrossSign(ax, ay, bx, by, cx, cy, dx, dy);
+    }
+
+    /**
+     * The most that a cross product of two rounded differences, evaluated as left - right, can be off by
+     *
+     * @param left  The first rounded product
+     * @param right The second rounded product
+     */
+    static double crossError(final double left, final double right) {
+        return CROSS_ERROR_BOUND * (Math.abs(left) + Math.abs(right));
+    }
+
+    /**
+     * Computes the rounded side of the line through (ox, oy) along (dx, dy) that each point
+     * from index from to index to - 1 lies on, dx * (y - oy) - dy * (x - ox), positive to the left. <br>
+     * The loop reads the co-ordinates as separate arrays and has no branches, so the JIT
+     * can unroll it and compile it to packed SIMD instructions. Java never fuses a multiply
+     * with a subtract, so every lane rounds exactly as the same expression written out
+     * for a single point.
+     *
+     * @param sides Receives the side of point i at index i
+     */
+    static void sides(final double[] x, final double[] y, final int from, final int to, final double ox,
+                      final double oy, final double dx, final double dy, final double[] sides) {
+        for (int i = from; i < to; i++)
+            sides[i] = dx * (y[i] - oy) - dy * (x[i] - ox);
+    }
+
+    /**
+     * Finds the sign of the cross product of (b - a) and (d - c) exactly, when rounding might have changed it <br>
+     * The whole slow path is kept in this one method so it is too large for the compiler to inline
+     * into the loops that call {@link #crossSign}, which stay as small as the filter.
+     */
+    private static int slowCrossSign(final double ax, final double ay, final double bx, final double by,
+                                     final double cx, final double cy, final double dx, final double dy) {
+        final double abx = bx - ax;
+        final double aby = by - ay;
+        final double cdx = dx - cx;
+        final double cdy = dy - cy;
+
+        // collinear points usually have exact differences, then only the two products need to be exact
+        if (sumError(bx, -ax, abx) == 0 && sumError(by, -ay, aby) == 0
+                && sumError(dx, -cx, cdx) == 0 && sumError(dy, -cy, cdy) == 0) {
+            final double left = abx * cdy;
+            final double right = aby * cdx;
+            final double leftError = productError(abx, cdy, left);
+            final double rightError = productError(aby, cdx, right);
+
+            // (left + leftError) - (right + rightError) as four components that do not overlap, smallest first
+            final double lowSum = leftError - rightError;
+            final double x0 = sumError(leftError, -rightError, lowSum);
+            final double upper = left + lowSum;
+            final double upperError = sumError(left, lowSum, upper);
+            final double middle = upperError - right;
+            final double x1 = sumError(upperError, -right, middle);
+            final double x3 = upper + middle;
+            final double x2 = sumError(upper, middle, x3);
+
+            final double largest = x3 != 0 ? x3 : (x2 != 0 ? x2 : (x1 != 0 ? x1 : x0));
+            return largest > 0 ? 1 : (largest < 0 ? -1 : 0);
+        }
+
+        // otherwise (bx - ax)(dy - cy) - (by - ay)(dx - cx) is expanded into its eight products,
+        // each split into an exact pair
+        final double[] expansion = new double[16];
+        int length = 0;
+        length = addProduct(expansion, length, bx, dy);
+        length = addProduct(expansion, length, -bx, cy);
+        length = addProduct(expansion, length, -ax, dy);
+        length = addProduct(expansion, length, ax, cy);
+        length = addProduct(expansion, length, -by, dx);
+        length = addProduct(expansion, length, by, cx);
+        length = addProduct(expansion, length, ay, dx);
+        length = addProduct(expansion, length, -ay, cx);
+
+        // the components do not overlap and grow in magnitude, so the last one decides the sign
+        return length == 0 ? 0 : (expansion[length - 1] > 0 ? 1 : -1);
+    }
+
+    /**
+     * Adds the exact product of a and b to an expansion
+     *
+     * @return The new length of the expansion
+     */
+    private static int addProduct(final double[] expansion, final int length, final double a, final double b) {
+        final double product = a * b;
+        return grow(expansion, grow(expansion, length, productError(a, b, product)), product);
+    }
+
+    /**
+     * Adds a double to an expansion exactly, dropping components that become zero
+     *
+     * @return The new length of the expansion
+     */
+    private static int grow(final double[] expansion, final int length, final double value) {
+        double sum = value;
+        int kept = 0;
+
+        for (int i = 0; i < length; i++) {
+            final double component = expansion[i];
+            final double next = sum + component;
+            final double error = sumError(sum, component, next);
+            sum = next;
+            if (error != 0)
+                expansion[kept++] = error;
+        }
+
+        if (sum != 0)
+            expansion[kept++] = sum;
+        return kept;
+    }
+
+    /**
+     * The rounding error of a + b, so that a + b is exactly sum + error
+     */
+    private static double sumError(final double a, final double b, final double sum) {
+        final double bVirtual = sum - a;
+        final double aVirtual = sum - bVirtual;
+        return (a - aVirtual) + (b - bVirtual);
+    }
+
+    /**
+     * The rounding error of a * b, so that a * b is exactly product + error
+     */
+    private static double productError(final double a, final double b, final double product) {
+        final double aBig = SPLITTER * a;
+        final double aHigh = aBig - (aBig - a);
+        final double aLow = a - aHigh;
+        final double bBig = SPLITTER * b;
+        final double bHigh = bBig - (bBig - b);
+        final double bLow = b - bHigh;
+
+        final double error1 = product - aHigh * bHigh;
+        final double error2 = error1 - aLow * bHigh;
+        final double error3 = error2 - aHigh * bLow;
+        return aLow * bLow - error3;
+    }
+
+    /**
+     * Finds which side of the line segment (x1, y1) to (x2, y2) the point (px, py) lies on. <br>
+     * A collinear point is reported as being on the segment when it lies between the
+     * two end points, otherwise it is reported on the side it extends past.
+     *
+     * @return 1 if the point is counter clockwise, -1 if it is clockwise or 0 if it is on the segment
+     */
+    public static int relativeCCW(final double x1, final double y1, final double x2, final double y2,
+                                  final double px, final double py) {
+        // screen co-ordinates, the y axis points down
+        final int ccw = -orientation(x1, y1, x2, y2, px, py);
+        if (ccw != 0)
+            return ccw;
+
+        // the point is collinear, compare it along an axis the segment is not perpendicular to
+        final double start = x1 != x2 ? x1 : y1;
+        final double end = x1 != x2 ? x2 : y2;
+        final double p = x1 != x2 ? px : py;
+
+        if (start < end)
+            return p < start ? -1 : (p > end ? 1 : 0);
+        if (start > end)
+            return p > start ? -1 : (p < end ? 1 : 0);
+        return 0;
+    }
+
+    /**
+     * Checks if two line segments share at least one point
+     */
+    public static boolean segmentsIntersect(final double ax1, final double ay1, final double ax2, final double ay2,
+                                            final double bx1, final double by1, final double bx2, final double by2) {
+        return relativeCCW(ax1, ay1, ax2, ay2, bx1, by1) * relativeCCW(ax1, ay1, ax2, ay2, bx2, by2) <= 0
+                && relativeCCW(bx1, by1, bx2, by2, ax1, ay1) * relativeCCW(bx1, by1, bx2, by2, ax2, ay2) <= 0;
+    }
+
+    /**
+     * Checks if a point lies on a line segment, end points included
+     */
+    public static boolean isPointOnLine(final double x1, final double y1, final double x2, final double y2,
+                                        final double px, final double py) {
+        return px >= Math.min(x1, x2) && px <= Math.max(x1, x2) && py >= Math.min(y1, y2) && py <= Math.max(y1, y2)
+                && orientation(x1, y1, x2, y2, px, py) == 0;
+    }
+
+    /**
+     * Checks if two line segments cross each other <br>
+     * Segments that only touch, where one ends on the other, do not cross.
+     */
+    public static boolean doLinesCross(final double ax1, final double ay1, final double ax2, final double ay2,
+                                       final double bx1, final double by1, final double bx2, final double by2) {
+        // each segment must have one end strictly on either side of the other
+        return orientation(ax1, ay1, ax2, ay2, bx1, by1) * orientation(ax1, ay1, ax2, ay2, bx2, by2) < 0
+                && orientation(bx1, by1, bx2, by2, ax1, ay1) * orientation(bx1, by1, bx2, by2, ax2, ay2) < 0;
+    }
+
+    /**
+     * Checks if the bounding boxes of two line segments overlap, which they must for the segments to meet
+     */
+    private static boolean boxesOverlap(final double ax1, final double ay1, final double ax2, final double ay2,
+                                        final double bx1, final double by1, final double bx2, final double by2) {
+        return Math.max(ax1, ax2) >= Math.min(bx1, bx2) && Math.max(bx1, bx2) >= Math.min(ax1, ax2)
+                && Math.max(ay1, ay2) >= Math.min(by1, by2) && Math.max(by1, by2) >= Math.min(ay1, ay2);
+    }
+
+    /**
+     * Calculates the intersection point of two line segments <br>
+     * Whether the segments meet is decided exactly. When an end point lies on the other
+     * segment that end point is the intersection, otherwise the point is rounded but always
+     * lies within the bounds of both segments. Collinear segments have no single
+     * intersection point and are reported as not intersecting.
+     *
+     * @param out    The buffer to write the x and y values of the intersection into
+     * @param offset The index in the buffer to write the x value to, the y value follows it
+     * @return True if the segments intersect and the point was written
+     */
+    public static boolean intersection(final double ax1, final double ay1, final double ax2, final double ay2,
+                                       final double bx1, final double by1, final double bx2, final double by2,
+                                       final double[] out, final int offset) {
+        if (!boxesOverlap(ax1, ay1, ax2, ay2, bx1, by1, bx2, by2))
+            return false;
+
+        final int sideA1 = orientation(bx1, by1, bx2, by2, ax1, ay1);
+        final int sideA2 = orientation(bx1, by1, bx2, by2, ax2, ay2);
+        if (sideA1 * sideA2 > 0 || sideA1 == 0 && sideA2 == 0)
+            return false;
+
+        final int sideB1 = orientation(ax1, ay1, ax2, ay2, bx1, by1);
+        final int sideB2 = orientation(ax1, ay1, ax2, ay2, bx2, by2);
+        if (sideB1 * sideB2 > 0)
+            return false;
+
+        double x;
+        double y;
+        if (sideA1 == 0) {
+            x = ax1;
+            y = ay1;
+        } else if (sideA2 == 0) {
+            x = ax2;
+            y = ay2;
+        } else if (sideB1 == 0) {
+            x = bx1;
+            y = by1;
+        } else if (sideB2 == 0) {
+            x = bx2;
+            y = by2;
+        } else {
+            // a proper crossing, measured along a from how far each of its ends is from b
+            final double distance1 = (bx2 - bx1) * (ay1 - by1) - (by2 - by1) * (ax1 - bx1);
+            final double distance2 = (bx2 - bx1) * (ay2 - by1) - (by2 - by1) * (ax2 - bx1);
+            double t = distance1 / (distance1 - distance2);
+            if (!(t >= 0))
+                t = 0;
+            else if (t > 1)
+                t = 1;
+
+            x = ax1 + t * (ax2 - ax1);
+            y = ay1 + t * (ay2 - ay1);
+
+            // keep the rounded point within both segments
+            x = Math.min(Math.max(x, Math.max(Math.min(ax1, ax2), Math.min(bx1, bx2))),
+                    Math.min(Math.max(ax1, ax2), Math.max(bx1, bx2)));
+            y = Math.min(Math.max(y, Math.max(Math.min(ay1, ay2), Math.min(by1, by2))),
+                    Math.min(Math.max(ay1, ay2), Math.max(by1, by2)));
+        }
+
+        out[offset] = x;
+        out[offset + 1] = y;
+        return true;
+    }
+
+    /**
+     * Sorts intersections stored in a scratch buffer by ascending sort key <br>
+     * Ties are broken by the x and then y values, so the order does not depend on
+     * the order the intersections were found in. Uses an in place heap sort so no
+     * memory is allocated.
+     *
+     * @param buffer The scratch buffer, see {@link #STRIDE}
+     * @param count  The number of intersections in the buffer
+     */
+    public static void sortByKey(final double[] buffer, final int count) {
+        for (int i = count / 2 - 1; i >= 0; i--)
+            siftDown(buffer, i, count);
+
+        for (int end = count - 1; end > 0; end--) {
+            swap(buffer, 0, end);
+            siftDown(buffer, 0, end);
+        }
+    }
+
+    private static void siftDown(final double[] buffer, int root, final int count) {
+        while (true) {
+            int child = 2 * root + 1;
+            if (child >= count)
+                return;
+
+            if (child + 1 < count && compare(buffer, child + 1, child) > 0)
+                child++;
+
+            if (compare(buffer, root, child) >= 0)
+                return;
+
+            swap(buffer, root, child);
+            root = child;
+        }
+    }
+
+    private static int compare(final double[] buffer, final int i, final int j) {
+        int result = Double.compare(buffer[i * STRIDE + 2], buffer[j * STRIDE + 2]);
+        if (result == 0)
+            result = Double.compare(buffer[i * STRIDE], buffer[j * STRIDE]);
+        if (result == 0)
+            result = Double.compare(buffer[i * STRIDE + 1], buffer[j * STRIDE + 1]);
+        return result;
+    }
+
+    private static void swap(final double[] buffer, final int i, final int j) {
+        for (int k = 0; k < STRIDE; k++) {
+            final double tmp = buffer[i * STRIDE + k];
+            buffer[i * STRIDE + k] = buffer[j * STRIDE + k];
+            buffer[j * STRIDE + k] = tmp;
+        }
+    }
+}
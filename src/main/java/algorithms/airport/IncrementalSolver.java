@@ -0,0 +1,374 @@
+package algorithms.airport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the longest runway on an island that is edited a few vertices at a time. <br>
+ * The runway through every valid vertex pair is cached, along with the stretch of line
+ * its extension rays were cast over. An edit only changes the boundary along the edges
+ * it removes and the edges it adds, so a pair can only change if its segment, or the
+ * stretch cast over by its rays, touches one of those edges. Only those pairs are tested
+ * again, every other pair keeps its cached answer.
+ * <br>
+ * <br>
+ * Each edit costs one cheap box test per vertex pair plus a full test of the affected
+ * pairs, instead of a full test of every pair. The runway returned after an edit is the
+ * same runway {@link AirportCalculator#calculate()} finds on the edited island.
+ * Vertices keep their identity through edits, so inserting or deleting a vertex does
+ * not invalidate the pairs of the vertices after it.
+ */
+public class IncrementalSolver {
+
+    /**
+     * Pairs that pass within this fraction of the island's size of a changed edge are
+     * tested again, so rounding can never hide a pair that touches the edge
+     */
+    private static final double DIRTY_PADDING = 0.000000001;
+
+    private Island island;
+
+    /**
+     * The identity of the vertex at each index, ids are never reused
+     */
+    private int[] ids;
+    private int nextId;
+
+    /**
+     * The cached result of every valid pair, keyed by the ids of the lower and higher index vertex
+     */
+    private Map<Long, Pair> valid = new HashMap<>();
+
+    private Runway runway;
+    private long reevaluated;
+
+    /**
+     * Constructs a solver and finds the longest runway on the initial island
+     *
+     * @param island The island, edits follow a single ring so it must not have lakes
+     */
+    public IncrementalSolver(final Island island) {
+        if (island.getLakeCount() > 0)
+            throw new IllegalArgumentException("Incremental solving does not support islands with lakes.");
+
+        island.prepareForQueries();
+        this.island = island;
+        this.ids = new int[island.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = nextId++;
+
+        resolve(null, -1);
+    }
+
+    /**
+     * The island after every edit so far
+     */
+    public Island getIsland() {
+        return island;
+    }
+
+    /**
+     * The longest runway on the current island
+     *
+     * @return The runway or NULL if no two vertices form a valid runway
+     */
+    public Runway getRunway() {
+        return runway;
+    }
+
+    /**
+     * The number of vertex pairs fully tested by the last edit, or by the initial solve
+     */
+    public long getReevaluatedCount() {
+        return reevaluated;
+    }
+
+    /**
+     * Moves a vertex
+     *
+     * @param index The index of the vertex
+     * @param x     The new x value
+     * @param y     The new y value
+     * @return The longest runway after the edit, or NULL if there is none
+     */
+    public Runway moveVertex(final int index, final double x, final double y) {
+        final int n = island.size();
+        checkIndex(index, n);
+
+        final double[] xs = Arrays.copyOf(island.xpoints, n);
+        final double[] ys = Arrays.copyOf(island.ypoints, n);
+        xs[index] = x;
+        ys[index] = y;
+
+        final List<double[]> dirty = new ArrayList<>();
+        addEdge(dirty, island, (index + n - 1) % n, index);
+        addEdge(dirty, island, index, (index + 1) % n);
+
+        final Island edited = new Island(xs, ys, n);
+        edited.prepareForQueries();
+        addEdge(dirty, edited, (index + n - 1) % n, index);
+        addEdge(dirty, edited, index, (index + 1) % n);
+
+        return apply(edited, ids, dirty, index);
+    }
+
+    /**
+     * Inserts a vertex, the vertex previously at the index and every vertex after it move up one place
+     *
+     * @param index The index of the new vertex, between 0 and the number of vertices
+     * @param x     The x value of the new vertex
+     * @param y     The y value of the new vertex
+     * @return The longest runway after the edit, or NULL if there is none
+     */
+    public Runway insertVertex(final int index, final double x, final double y) {
+        final int n = island.size();
+        checkIndex(index, n + 1);
+
+        final double[] xs = new double[n + 1];
+        final double[] ys = new double[n + 1];
+        final int[] editedIds = new int[n + 1];
+        for (int i = 0, j = 0; i <= n; i++) {
+            if (i == index) {
+                xs[i] = x;
+                ys[i] = y;
+                editedIds[i] = nextId++;
+            } else {
+                xs[i] = island.xpoints[j];
+                ys[i] = island.ypoints[j];
+                editedIds[i] = ids[j];
+                j++;
+            }
+        }
+
+        final List<double[]> dirty = new ArrayList<>();
+        addEdge(dirty, island, (index + n - 1) % n, index % n);
+
+        final Island edited = new Island(xs, ys, n + 1);
+        edited.prepareForQueries();
+        addEdge(dirty, edited, (index + n) % (n + 1), index);
+        addEdge(dirty, edited, index, (index + 1) % (n + 1));
+
+        return apply(edited, editedIds, dirty, index);
+    }
+
+    /**
+     * Deletes a vertex, every vertex after it moves down one place
+     *
+     * @param index The index of the vertex
+     * @return The longest runway after the edit, or NULL if there is none
+     */
+    public Runway deleteVertex(final int index) {
+        final int n = island.size();
+        checkIndex(index, n);
+        if (n == 3)
+            throw new IllegalArgumentException("Island must have at least 3 points.");
+
+        final double[] xs = new double[n - 1];
+        final double[] ys = new double[n - 1];
+        final int[] editedIds = new int[n - 1];
+        for (int i = 0, j = 0; i < n; i++) {
+            if (i != index) {
+                xs[j] = island.xpoints[i];
+                ys[j] = island.ypoints[i];
+                editedIds[j] = ids[i];
+                j++;
+            }
+        }
+
+        final List<double[]> dirty = new ArrayList<>();
+        addEdge(dirty, island, (index + n - 1) % n, index);
+        addEdge(dirty, island, index, (index + 1) % n);
+
+        final Island edited = new Island(xs, ys, n - 1);
+        edited.prepareForQueries();
+        addEdge(dirty, edited, (index + n - 2) % (n - 1), index % (n - 1));
+
+        return apply(edited, editedIds, dirty, -1);
+    }
+
+    private Runway apply(final Island edited, final int[] editedIds, final List<double[]> dirty, final int changed) {
+        island = edited;
+        ids = editedIds;
+        resolve(dirty, changed);
+        return runway;
+    }
+
+    /**
+     * Tests every pair that could have been affected by an edit and picks the longest runway
+     *
+     * @param dirty   The removed and added edges, or NULL to test every pair
+     * @param changed The index of the moved or inserted vertex, or -1
+     */
+    private void resolve(final List<double[]> dirty, final int changed) {
+        final int n = island.size();
+        final Map<Long, Pair> resolved = new HashMap<>(valid.size() * 4 / 3 + 16);
+        final Scratch scratch = island.createScratch();
+        final double[] start = new double[2];
+        final double[] end = new double[2];
+
+        final double padding = DIRTY_PADDING * (island.getWidth() + island.getHeight());
+        final double[][] edges = dirty == null ? null : dirty.toArray(new double[0][]);
+
+        final double[] reach = {island.getMinX(), island.getMinY(), island.getMaxX(), island.getMaxY()};
+        if (edges != null) {
+            for (final double[] e : edges) {
+                reach[0] = Math.min(reach[0], Math.min(e[0], e[2]) - padding);
+                reach[1] = Math.min(reach[1], Math.min(e[1], e[3]) - padding);
+                reach[2] = Math.max(reach[2], Math.max(e[0], e[2]) + padding);
+                reach[3] = Math.max(reach[3], Math.max(e[1], e[3]) + padding);
+            }
+        }
+
+        Runway best = null;
+        long tested = 0;
+
+        for (int a = 0; a < n; a++) {
+            final double ax = island.xpoints[a];
+            final double ay = island.ypoints[a];
+
+            for (int b = a + 1; b < n; b++) {
+                final long key = pairKey(ids[a], ids[b]);
+                final double bx = island.xpoints[b];
+                final double by = island.ypoints[b];
+
+                Pair pair = edges == null ? null : valid.get(key);
+                final boolean stale = edges == null || a == changed || b == changed
+                        || (pair == null ? touches(edges, padding, ax, ay, bx, by)
+                        : pair.touches(edges, padding, reach, ax, ay, bx, by));
+
+                if (stale) {
+                    tested++;
+                    pair = null;
+                    if (island.containsLine(a, b, scratch)) {
+                        // the same extension as AirportCalculator.evaluate, keeping the ray parameters
+                        final double tStart = AirportCalculator.extend(island, ax, ay, ax - bx, ay - by,
+                                scratch, start);
+                        final double tEnd = AirportCalculator.extend(island, bx, by, bx - ax, by - ay,
+                                scratch, end);
+
+                        pair = new Pair(new Runway(start[0], start[1], end[0], end[1]), tStart, tEnd);
+                    }
+                }
+
+                if (pair != null) {
+                    resolved.put(key, pair);
+                    if (best == null || pair.runway.getLength() >= best.getLength())
+                        best = pair.runway;
+                }
+            }
+        }
+
+        valid = resolved;
+        runway = best;
+        reevaluated = tested;
+    }
+
+    /**
+     * Checks if a line segment comes within the padding distance of any of the edges
+     *
+     * @param edges   The edges, each stored as x1, y1, x2, y2
+     * @param padding The distance
+     */
+    private static boolean touches(final double[][] edges, final double padding, final double x1, final double y1,
+                                   final double x2, final double y2) {
+        for (final double[] e : edges) {
+            if (Math.max(x1, x2) < Math.min(e[0], e[2]) - padding
+                    || Math.min(x1, x2) > Math.max(e[0], e[2]) + padding
+                    || Math.max(y1, y2) < Math.min(e[1], e[3]) - padding
+                    || Math.min(y1, y2) > Math.max(e[1], e[3]) + padding)
+                continue;
+
+            if (Geometry.segmentsIntersect(x1, y1, x2, y2, e[0], e[1], e[2], e[3]))
+                return true;
+
+            final double paddingSq = padding * padding;
+            if (pointSegmentDistanceSq(e[0], e[1], x1, y1, x2, y2) <= paddingSq
+                    || pointSegmentDistanceSq(e[2], e[3], x1, y1, x2, y2) <= paddingSq
+                    || pointSegmentDistanceSq(x1, y1, e[0], e[1], e[2], e[3]) <= paddingSq
+                    || pointSegmentDistanceSq(x2, y2, e[0], e[1], e[2], e[3]) <= paddingSq)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Calculates the squared distance from a point to the nearest point on a line segment
+     */
+    private static double pointSegmentDistanceSq(final double px, final double py, final double x1, final double y1,
+                                                 final double x2, final double y2) {
+        final double dx = x2 - x1;
+        final double dy = y2 - y1;
+        final double lengthSq = dx * dx + dy * dy;
+
+        double t = lengthSq == 0 ? 0 : ((px - x1) * dx + (py - y1) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+
+        return Geometry.distanceSq(px, py, x1 + t * dx, y1 + t * dy);
+    }
+
+    /**
+     * Adds the edge between two vertices
+     */
+    private static void addEdge(final List<double[]> dirty, final Island island, final int i, final int j) {
+        dirty.add(new double[]{island.xpoints[i], island.ypoints[i], island.xpoints[j], island.ypoints[j]});
+    }
+
+    /**
+     * Packs the ids of a pair into a map key <br>
+     * Long hashes the two halves of the key together, so the packed ids are scrambled
+     * by an odd multiplier first. Multiplying by an odd number never maps two keys
+     * to the same value.
+     */
+    private static long pairKey(final int idA, final int idB) {
+        return ((long) idA << 32 | idB) * 0x9E3779B97F4A7C15L;
+    }
+
+    private static void checkIndex(final int index, final int bound) {
+        if (index < 0 || index >= bound)
+            throw new IllegalArgumentException("Invalid vertex index " + index + ".");
+    }
+
+    /**
+     * The cached result of one valid vertex pair
+     */
+    private static class Pair {
+
+        private final Runway runway;
+
+        /**
+         * The ray parameters of the nearest edges behind the first vertex and beyond the
+         * second, see {@link AirportCalculator#extend}. The pair's result only depends on
+         * the stretch of line between those edges.
+         */
+        private final double tStart;
+        private final double tEnd;
+
+        Pair(final Runway runway, final double tStart, final double tEnd) {
+            this.runway = runway;
+            this.tStart = tStart;
+            this.tEnd = tEnd;
+        }
+
+        /**
+         * Checks if any of the edges touches the stretch of line the pair depends on
+         *
+         * @param reach A box holding the island and every edge, a ray that hit
+         *              nothing is followed until it leaves the box
+         */
+        boolean touches(final double[][] edges, final double padding, final double[] reach,
+                        final double ax, final double ay, final double bx, final double by) {
+            final double dx = bx - ax;
+            final double dy = by - ay;
+            final double start = Double.isInfinite(tStart)
+                    ? Geometry.boxExitParameter(reach[0], reach[1], reach[2], reach[3], ax, ay, -dx, -dy) : tStart;
+            final double end = Double.isInfinite(tEnd)
+                    ? Geometry.boxExitParameter(reach[0], reach[1], reach[2], reach[3], bx, by, dx, dy) : tEnd;
+
+            return IncrementalSolver.touches(edges, padding, ax - start * dx, ay - start * dy,
+                    bx + end * dx, by + end * dy);
+        }
+    }
+}
@@ -1,14 +1,53 @@
 package algorithms.airport;
 
-import java.awt.*;
-import java.awt.geom.Line2D;
-import java.awt.geom.Point2D;
-import java.util.*;
+import java.util.Arrays;
+import java.util.List;
 
-import static algorithms.airport.Utility.doLinesCross;
-import static algorithms.airport.Utility.getIntersection;
+import static algorithms.airport.Geometry.*;
 
-public class Island extends Polygon {
+/**
+ * An island described by a simple polygon with double precision vertices, and any number
+ * of lakes inside it. <br>
+ * The vertices are stored as separate x and y arrays, along with the bounding box
+ * and the direction of every edge. The coast comes first and each lake follows it as a
+ * ring of its own, so an island without lakes is a single ring. An island never changes
+ * after it is constructed, so it can be shared freely between threads.
+ */
+public final class Island {
+
+    /**
+     * Islands with at least this many vertices are given an edge index, see {@link #prepareForQueries()}
+     */
+    private static final int EDGE_INDEX_THRESHOLD = 64;
+
+    final double[] xpoints;
+    final double[] ypoints;
+    final int npoints;
+
+    /**
+     * Ring r holds vertices ringStart[r] to ringStart[r + 1] - 1. Ring 0 is the coast and
+     * every other ring is a lake.
+     */
+    final int[] ringStart;
+
+    /**
+     * Edge i runs from vertex i to {@link #next(int)}, the next vertex around its ring, and
+     * has the direction (edgeDx[i], edgeDy[i])
+     */
+    final double[] edgeDx;
+    final double[] edgeDy;
+
+    /**
+     * The next vertex around the ring of each vertex, or NULL when the coast is the only ring
+     */
+    private final int[] nextVertex;
+
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    private volatile EdgeGrid edgeIndex;
 
     /**
      * Constructs an island with the given vertices
@@ -17,11 +56,130 @@ public class Island extends Polygon {
      * @param ypoints The y co-ordinates
      * @param npoints The number of points
      */
+    public Island(final double[] xpoints, final double[] ypoints, final int npoints) {
+        this(xpoints, ypoints, new int[]{0, npoints});
+    }
+
+    /**
+     * Constructs an island with lakes. Runways must not cross a lake. <br>
+     * Each lake must lie inside the coast without touching it or another lake.
+     *
+     * @param coast The coast, an island without lakes
+     * @param lakes The lakes, each an island without lakes of its own
+     */
+    public Island(final Island coast, final List<Island> lakes) {
+        this(join(coast, lakes, true), join(coast, lakes, false), ringStarts(coast, lakes));
+    }
+
+    /**
+     * Constructs an island from its rings
+     *
+     * @param ringStart The first vertex of each ring followed by the number of points, the
+     *                  first ring is the coast and the rest are lakes
+     */
+    Island(final double[] xpoints, final double[] ypoints, final int[] ringStart) {
+        final int npoints = ringStart[ringStart.length - 1];
+        for (int r = 0; r + 1 < ringStart.length; r++) {
+            if (ringStart[r + 1] - ringStart[r] < 3) {
+                throw new IllegalArgumentException(r == 0 ? "Island must have at least 3 points."
+                        : "Lakes must have at least 3 points.");
+            }
+        }
+        if (npoints > xpoints.length || npoints > ypoints.length) {
+            throw new IllegalArgumentException("Island has fewer co-ordinates than points.");
+        }
+
+        this.xpoints = Arrays.copyOf(xpoints, npoints);
+        this.ypoints = Arrays.copyOf(ypoints, npoints);
+        this.npoints = npoints;
+        this.ringStart = ringStart.clone();
+        this.edgeDx = new double[npoints];
+        this.edgeDy = new double[npoints];
+
+        if (ringStart.length > 2) {
+            nextVertex = new int[npoints];
+            for (int r = 0; r + 1 < ringStart.length; r++) {
+                for (int i = ringStart[r]; i < ringStart[r + 1]; i++)
+                    nextVertex[i] = i + 1 == ringStart[r + 1] ? ringStart[r] : i + 1;
+            }
+        } else {
+            nextVertex = null;
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < npoints; i++) {
+            final double x = this.xpoints[i];
+            final double y = this.ypoints[i];
+            if (!Double.isFinite(x) || !Double.isFinite(y)) {
+                throw new IllegalArgumentException("Island co-ordinates must be finite.");
+            }
+
+            final int j = next(i);
+            edgeDx[i] = this.xpoints[j] - x;
+            edgeDy[i] = this.ypoints[j] - y;
+
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Constructs an island with integer vertices
+     *
+     * @param xpoints The x co-ordinates
+     * @param ypoints The y co-ordinates
+     * @param npoints The number of points
+     */
     public Island(final int[] xpoints, final int[] ypoints, final int npoints) {
-        super(xpoints, ypoints, npoints);
-        if (npoints < 3) {
-            throw new IllegalArgumentException("Island must have at least 3 points.");
+        this(toDoubles(xpoints, npoints), toDoubles(ypoints, npoints), npoints);
+    }
+
+    private static double[] toDoubles(final int[] values, final int count) {
+        final double[] result = new double[Math.min(values.length, count)];
+        for (int i = 0; i < result.length; i++)
+            result[i] = values[i];
+        return result;
+    }
+
+    /**
+     * The x or y values of a coast followed by those of its lakes
+     */
+    private static double[] join(final Island coast, final List<Island> lakes, final boolean x) {
+        int size = coast.npoints;
+        for (final Island lake : lakes)
+            size += lake.npoints;
+
+        final double[] result = Arrays.copyOf(x ? coast.xpoints : coast.ypoints, size);
+        int offset = coast.npoints;
+        for (final Island lake : lakes) {
+            System.arraycopy(x ? lake.xpoints : lake.ypoints, 0, result, offset, lake.npoints);
+            offset += lake.npoints;
         }
+        return result;
+    }
+
+    private static int[] ringStarts(final Island coast, final List<Island> lakes) {
+        final int[] ringStart = new int[lakes.size() + 2];
+        ringStart[1] = coast.npoints;
+        if (coast.getLakeCount() > 0)
+            throw new IllegalArgumentException("The coast must not have lakes of its own.");
+
+        for (int r = 0; r < lakes.size(); r++) {
+            final Island lake = lakes.get(r);
+            if (lake.getLakeCount() > 0)
+                throw new IllegalArgumentException("Lakes must not have lakes of their own.");
+            ringStart[r + 2] = ringStart[r + 1] + lake.npoints;
+        }
+        return ringStart;
     }
 
     /**
@@ -31,14 +189,225 @@ public class Island extends Polygon {
         return npoints;
     }
 
-    private Line2D getLineFromIndices(final int a, final int b) {
-        if (a == b || a > npoints || b > npoints || a < 0 || b < 0)
-            throw new IllegalArgumentException("Invalid line segment");
+    /**
+     * The number of lakes, 0 for an island that is a single ring
+     */
+    public int getLakeCount() {
+        return ringStart.length - 2;
+    }
 
-        final Point2D.Double ptA = new Point2D.Double(xpoints[a], ypoints[a]);
-        final Point2D.Double ptB = new Point2D.Double(xpoints[b], ypoints[b]);
+    /**
+     * The index of the first vertex of a ring <br>
+     * Ring 0 is the coast and ring r is the r-th lake. The vertices of a ring run up
+     * to the start of the next ring, and ring {@link #getLakeCount()} + 1 starts at {@link #size()}.
+     *
+     * @param ring The ring
+     * @return The index of its first vertex
+     */
+    public int getRingStart(final int ring) {
+        return ringStart[ring];
+    }
+
+    /**
+     * The vertex that edge i runs to, the next vertex around the ring of vertex i
+     */
+    int next(final int i) {
+        if (nextVertex != null)
+            return nextVertex[i];
+        return i + 1 == npoints ? 0 : i + 1;
+    }
 
-        return new Line2D.Double(ptA, ptB);
+    /**
+     * The x value of the i-th vertex
+     */
+    public double getX(final int i) {
+        return xpoints[i];
+    }
+
+    /**
+     * The y value of the i-th vertex
+     */
+    public double getY(final int i) {
+        return ypoints[i];
+    }
+
+    /**
+     * The smallest x value of any vertex
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * The smallest y value of any vertex
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * The largest x value of any vertex
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * The largest y value of any vertex
+     */
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * The width of the bounding box
+     */
+    public double getWidth() {
+        return maxX - minX;
+    }
+
+    /**
+     * The height of the bounding box
+     */
+    public double getHeight() {
+        return maxY - minY;
+    }
+
+    /**
+     * Builds a spatial index over the edges of the island so that line segment
+     * and point queries only test the edges near them. The index never changes
+     * the result of a query, only how quickly it is answered.
+     */
+    public void buildEdgeIndex() {
+        if (edgeIndex == null)
+            edgeIndex = new EdgeGrid(this);
+    }
+
+    /**
+     * Builds the edge index when the island has enough vertices for it to pay off,
+     * see {@link #buildEdgeIndex()}
+     */
+    public void prepareForQueries() {
+        if (npoints >= EDGE_INDEX_THRESHOLD)
+            buildEdgeIndex();
+    }
+
+    /**
+     * Whether the island has an edge index, see {@link #buildEdgeIndex()}
+     */
+    public boolean hasEdgeIndex() {
+        return edgeIndex != null;
+    }
+
+    /**
+     * Creates the buffers used by the allocation free queries on this island <br>
+     * Each thread making queries needs its own scratch.
+     *
+     * @return The scratch
+     */
+    public Scratch createScratch() {
+        return new Scratch(npoints);
+    }
+
+    /**
+     * Tests whether a point is inside the island, see {@link #contains(double, double, Scratch)}
+     */
+    public boolean contains(final double x, final double y) {
+        return contains(x, y, null);
+    }
+
+    /**
+     * Tests whether a point is inside the island using the even-odd rule <br>
+     * Points on the boundary follow the same rule as {@link java.awt.Shape}, they
+     * are inside when the interior lies immediately to their right, or immediately
+     * below them on a horizontal edge. Only edges that cross the horizontal ray to
+     * the right of the point can change the answer, so with an edge index only the
+     * cells along that ray are tested.
+     *
+     * @param x       The x value of the point
+     * @param y       The y value of the point
+     * @param scratch The scratch from {@link #createScratch()}, or NULL to test every edge
+     * @return True if the point is inside the island
+     */
+    public boolean contains(final double x, final double y, final Scratch scratch) {
+        if (!(x >= minX && y >= minY && x < maxX && y < maxY))
+            return false;
+
+        final EdgeGrid index = edgeIndex;
+        // no difference between points in the bounding box is larger than its width or height,
+        // so one bound covers the rounding of every edge's side test
+        final double width = maxX - minX;
+        final double height = maxY - minY;
+        final double sideError = Geometry.crossError(width * height, height * width);
+        int hits = 0;
+
+        if (index == null || scratch == null) {
+            for (int i = 0; i < npoints; i++) {
+                if (crossesRay(i, x, y, sideError))
+                    hits++;
+            }
+        } else {
+            final int count = index.collectRow(x, y, scratch);
+            for (int k = 0; k < count; k++) {
+                if (crossesRay(scratch.edges[k], x, y, sideError))
+                    hits++;
+            }
+        }
+
+        return (hits & 1) != 0;
+    }
+
+    /**
+     * Checks if edge i crosses the horizontal ray from a point towards positive x. <br>
+     * Each edge is treated as half open in y and horizontal edges never cross,
+     * so a ray through a vertex is counted once.
+     *
+     * @param sideError Bounds the rounding error of the side of the edge the point is on
+     */
+    private boolean crossesRay(final int i, final double x, final double y, final double sideError) {
+        if (edgeDy[i] == 0)
+            return false;
+
+        final int j = next(i);
+        final double x1 = xpoints[i];
+        final double y1 = ypoints[i];
+        final double x2 = xpoints[j];
+        final double y2 = ypoints[j];
+
+        if (x >= Math.max(x1, x2))
+            return false;
+
+        final double lowX;
+        final double lowY;
+        final double highX;
+        final double highY;
+        if (y2 > y1) {
+            if (y < y1 || y >= y2)
+                return false;
+            lowX = x1;
+            lowY = y1;
+            highX = x2;
+            highY = y2;
+        } else {
+            if (y < y2 || y >= y1)
+                return false;
+            lowX = x2;
+            lowY = y2;
+            highX = x1;
+            highY = y1;
+        }
+
+        if (x < Math.min(x1, x2))
+            return true;
+
+        // the point is left of the edge when the edge is walked upwards, the rounded side
+        // decides it unless the point is close enough to the edge for rounding to matter
+        final double side = (highX - lowX) * (y - lowY) - (highY - lowY) * (x - lowX);
+        if (side > sideError)
+            return true;
+        if (side < -sideError)
+            return false;
+        return Geometry.orientation(lowX, lowY, highX, highY, x, y) > 0;
     }
 
     /**
@@ -49,103 +418,388 @@ public class Island extends Polygon {
      * @return True if the line is inside the polygon
      */
     public boolean containsLine(final int a, final int b) {
-        if (a == b || a > npoints || b > npoints || a < 0 || b < 0) {
+        return containsLine(a, b, createScratch());
+    }
+
+    /**
+     * Tests where a line between two vertices is fully contained by the island
+     *
+     * @param a       The index of the first vertex
+     * @param b       The index of the second vertex
+     * @param scratch The scratch from {@link #createScratch()}, overwritten by this call
+     * @return True if the line is inside the polygon
+     */
+    public boolean containsLine(final int a, final int b, final Scratch scratch) {
+        if (a == b || a >= npoints || b >= npoints || a < 0 || b < 0) {
             throw new IllegalArgumentException("Invalid line segment");
         }
 
         // check if the vertices are in direct sequence
-        if (Math.abs(a - b) == 1 || Math.abs(a - b) == npoints - 1) {
+        if (next(a) == b || next(b) == a) {
+            scratch.count(CalculatorStats.ADJACENT, 1);
             return true;
         }
 
-        final Point2D pA = new Point2D.Double(xpoints[a], ypoints[a]);
-        final Point2D pB = new Point2D.Double(xpoints[b], ypoints[b]);
+        final double ax = xpoints[a];
+        final double ay = ypoints[a];
+        final double bx = xpoints[b];
+        final double by = ypoints[b];
+
+        final int edgeCount = edgesNearLine(ax, ay, bx, by, scratch);
 
         // If the line segment crosses ANY edge it is invalid.
-        for (int i = 0; i < npoints - 1; i++) {
-            if (a == i || a == a + 1 || b == i || b == i + 1)
+        for (int k = 0; k < edgeCount; k++) {
+            final int i = scratch.edges[k];
+            final int j = next(i);
+            if (a == i || a == j || b == i || b == j)
                 continue; // dont check if the line segment crosses itself
 
-            if (doLinesCross(getLineFromIndices(a, b), getLineFromIndices(i, i + 1)))
+            if (doLinesCross(ax, ay, bx, by, xpoints[i], ypoints[i], xpoints[j], ypoints[j])) {
+                scratch.count(CalculatorStats.CROSSING_REJECTS, 1);
                 return false;
+            }
         }
 
-        if (doLinesCross(getLineFromIndices(a, b), getLineFromIndices(npoints - 1, 0)))
-            return false;
-
-        final LinkedList<Point2D> intersections = getIntersections(a, b);
-
-        final Comparator<Point2D> comp = (o1, o2) -> Double.compare(pA.distance(o2), pA.distance(o1));
         // sort the intersections by distance from a and check whether
         // each midpoint between the intersections is inside the polygon
         // if any midpoint is not inside the polygon, then the line is invalid
-        intersections.sort(comp);
-        intersections.addFirst(pA);
-        intersections.addLast(pB);
+        final double[] intersections = scratch.intersections;
+        final int count = getIntersections(ax, ay, bx, by, edgeCount, scratch);
+        sortByKey(intersections, count);
 
-        final Iterator<Point2D> it = intersections.iterator();
-        Point2D left = it.next();
+        double leftX = ax;
+        double leftY = ay;
 
-        for (int i = 0; i < intersections.size() - 1; i++) {
-            Point2D right = it.next();
-            if (left.equals(right))
-                continue;
+        for (int i = 0; i <= count; i++) {
+            final double rightX = i < count ? intersections[i * STRIDE] : bx;
+            final double rightY = i < count ? intersections[i * STRIDE + 1] : by;
 
-            final double x = (left.getX() + right.getX()) / 2;
-            final double y = (left.getY() + right.getY()) / 2;
+            if (leftX == rightX && leftY == rightY)
+                continue;
 
-            if (!contains(x, y)) {
+            if (!contains((leftX + rightX) / 2, (leftY + rightY) / 2, scratch)) {
+                scratch.count(CalculatorStats.MIDPOINT_REJECTS, 1);
                 return false;
             }
-            left = right;
+            leftX = rightX;
+            leftY = rightY;
         }
 
         return true;
     }
 
     /**
-     * Finds all intersections between the given line segment and the edges of the polygon
+     * Checks if a line segment touches any edge outside a range of edges
+     *
+     * @param skipFrom The first edge that is not tested, edge i runs from vertex i to vertex i + 1
+     * @param skipTo   The last edge that is not tested, the range wraps past the last edge, so
+     *                 it only follows the coast of an island without lakes
+     * @param scratch  The scratch from {@link #createScratch()}, overwritten by this call
+     * @return True if the segment shares a point with an edge outside the range
+     */
+    boolean touchesEdges(final double ax, final double ay, final double bx, final double by, final int skipFrom,
+                         final int skipTo, final Scratch scratch) {
+        final EdgeGrid index = edgeIndex;
+        final int edgeCount = candidateEdges(index, ax, ay, bx, by, scratch);
+        final int skipped = Math.floorMod(skipTo - skipFrom, npoints);
+
+        for (int k = 0; k < edgeCount; k++) {
+            final int i = edgeAt(index, k, scratch);
+            if (Math.floorMod(i - skipFrom, npoints) <= skipped)
+                continue;
+
+            final int j = next(i);
+            if (segmentsIntersect(ax, ay, bx, by, xpoints[i], ypoints[i], xpoints[j], ypoints[j]))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds all intersections between the given line segment and the edges of the polygon <br>
+     * Edges that share an end point with the line segment are ignored. Each intersection
+     * is written to the scratch as its x value, y value and squared distance from
+     * the first point, see {@link Geometry#STRIDE}.
      *
-     * @param a The index of the first vertex in the line segment
-     * @param b The index of the second vertex in the line segment
-     * @return A list of points where the lines intersect
+     * @param ax      The x value of the first point in the line segment
+     * @param ay      The y value of the first point in the line segment
+     * @param bx      The x value of the second point in the line segment
+     * @param by      The y value of the second point in the line segment
+     * @param scratch The scratch from {@link #createScratch()}
+     * @return The number of intersections written to the scratch
      */
-    private LinkedList<Point2D> getIntersections(final int a, final int b) {
-        return getIntersections(new Point2D.Double(xpoints[a], ypoints[a]), new Point2D.Double(xpoints[b], ypoints[b]));
+    public int getIntersections(final double ax, final double ay, final double bx, final double by,
+                                final Scratch scratch) {
+        return getIntersections(ax, ay, bx, by, edgesNearLine(ax, ay, bx, by, scratch), scratch);
     }
 
     /**
-     * Finds all intersections between the given line segment and the edges of the polygon
+     * Finds the intersections between the given line segment and the edges near its line
      *
-     * @param a The first point in the line segment
-     * @param b The second point in the line segment
-     * @return A list of points where the lines intersect
+     * @param edgeCount The number of edges near the line, see {@link #edgesNearLine}
      */
-    public LinkedList<Point2D> getIntersections(final Point2D a, final Point2D b) {
-        final LinkedList<Point2D> list = new LinkedList<>();
+    private int getIntersections(final double ax, final double ay, final double bx, final double by,
+                                 final int edgeCount, final Scratch scratch) {
+        final double[] intersections = scratch.intersections;
+        int count = 0;
 
-        for (int i = 0; i < size() - 1; i++) {
-            if (xpoints[i] == a.getX() && ypoints[i] == a.getY() || xpoints[i + 1] == a.getX() && ypoints[i + 1] == a.getY()
-                    || xpoints[i] == b.getX() && ypoints[i] == b.getY() || xpoints[i + 1] == b.getX() && ypoints[i + 1] == b.getY())
+        for (int k = 0; k < edgeCount; k++) {
+            final int i = scratch.edges[k];
+            final int j = next(i);
+            final double x1 = xpoints[i];
+            final double y1 = ypoints[i];
+            final double x2 = xpoints[j];
+            final double y2 = ypoints[j];
+
+            if (x1 == ax && y1 == ay || x2 == ax && y2 == ay || x1 == bx && y1 == by || x2 == bx && y2 == by)
                 continue;
 
-            final Line2D edge = getLineFromIndices(i, i + 1);
-            final Point2D intersectionPt = getIntersection(new Line2D.Double(a, b), edge);
+            final int offset = count * STRIDE;
+            if (intersection(ax, ay, bx, by, x1, y1, x2, y2, intersections, offset)) {
+                intersections[offset + 2] = distanceSq(ax, ay, intersections[offset], intersections[offset + 1]);
+                count++;
+            }
+        }
+
+        scratch.count(CalculatorStats.INTERSECTIONS, count);
+        return count;
+    }
+
+    /**
+     * Casts a ray from a point and finds the nearest edge it hits <br>
+     * Edges that end on the point itself are ignored, as are edges parallel to the ray.
+     * When two edges are hit at the same distance the edge with the lower index wins,
+     * so the result does not depend on the edge index.
+     *
+     * @param ox      The x value of the point the ray starts at
+     * @param oy      The y value of the point the ray starts at
+     * @param dx      The x value of the ray's direction
+     * @param dy      The y value of the ray's direction
+     * @param scratch The scratch from {@link #createScratch()}
+     * @return The parameter t of the nearest hit at (ox + t * dx, oy + t * dy) or
+     * positive infinity if the ray hits nothing
+     */
+    public double castRay(final double ox, final double oy, final double dx, final double dy, final Scratch scratch) {
+        double nearest = Double.POSITIVE_INFINITY;
+        int nearestEdge = Integer.MAX_VALUE;
+
+        final double sideError = sideError(ox, oy, dx, dy);
+        final EdgeGrid edgeIndex = this.edgeIndex;
+        if (edgeIndex == null) {
+            final int count = edgesNearLine(ox, oy, dx, dy, sideError, scratch);
+            for (int k = 0; k < count; k++) {
+                final int i = scratch.edges[k];
+                final double t = hitParameter(i, ox, oy, dx, dy);
+                if (t < nearest) {
+                    nearest = t;
+                    nearestEdge = i;
+                }
+            }
+            return nearest;
+        }
+
+        // walk the grid one column at a time away from the origin, the ray can
+        // stop as soon as a hit lies inside the columns already visited
+        final double exit = boxExitParameter(minX, minY, maxX, maxY, ox, oy, dx, dy);
+        final double fx = ox + exit * dx;
+        final double fy = oy + exit * dy;
+
+        final int step = dx < 0 ? -1 : 1;
+        final double padding = edgeIndex.columnPadding();
+        final int first = edgeIndex.column(ox - step * padding);
+        final int last = edgeIndex.column(fx + step * padding);
+
+        scratch.nextQuery();
+        for (int c = first; ; c += step) {
+            final int count = edgeIndex.collectColumn(ox, oy, fx, fy, c, scratch);
+
+            for (int k = 0; k < count; k++) {
+                final int i = scratch.edges[k];
+                // most edges have both ends clearly on one side of the ray's line
+                if (isClearOfLine(i, next(i), ox, oy, dx, dy, sideError))
+                    continue;
+
+                final double t = hitParameter(i, ox, oy, dx, dy);
+                if (t < nearest || t == nearest && i < nearestEdge) {
+                    nearest = t;
+                    nearestEdge = i;
+                }
+            }
+
+            if (c == last)
+                break;
 
-            if (intersectionPt != null)
-                list.add(intersectionPt);
+            if (dx != 0 && nearest <= (edgeIndex.columnEdge(c, step > 0) - ox) / dx)
+                break;
         }
 
-        if (xpoints[0] == a.getX() && ypoints[0] == a.getY() || xpoints[npoints - 1] == a.getX() && ypoints[npoints - 1] == a.getY()
-                || xpoints[0] == b.getX() && ypoints[0] == b.getY() || xpoints[npoints - 1] == b.getX() && ypoints[npoints - 1] == b.getY())
-            return list;
+        return nearest;
+    }
+
+    /**
+     * Finds where a ray hits edge i
+     *
+     * @return The ray parameter of the hit or positive infinity if the ray misses
+     * the edge, is parallel to it or starts on one of its end points
+     */
+    private double hitParameter(final int i, final double ox, final double oy, final double dx, final double dy) {
+        final int j = next(i);
+        final double x1 = xpoints[i];
+        final double y1 = ypoints[i];
 
-        final Line2D.Double edge = new Line2D.Double(xpoints[npoints - 1], ypoints[npoints - 1], xpoints[0], ypoints[0]);
-        final Point2D intersectionPt = getIntersection(new Line2D.Double(a, b), edge);
+        if (x1 == ox && y1 == oy || xpoints[j] == ox && ypoints[j] == oy)
+            return Double.POSITIVE_INFINITY;
 
-        if (intersectionPt != null)
-            list.add(intersectionPt);
+        final double x2 = xpoints[j];
+        final double y2 = ypoints[j];
 
-        return list;
+        return exactHitParameter(i, x1, y1, x2, y2, ox, oy, dx, dy);
+    }
+
+    /**
+     * Bounds the rounding error of the side of the line through (ox, oy) along (dx, dy) that any
+     * vertex lies on, evaluated as in {@link #isClearOfLine}. The differences from the origin are
+     * largest at the bounding box and rounding never breaks that order, so one bound covers every vertex.
+     */
+    private double sideError(final double ox, final double oy, final double dx, final double dy) {
+        return Geometry.crossError(dx * Math.max(maxY - oy, oy - minY), dy * Math.max(maxX - ox, ox - minX));
+    }
+
+    /**
+     * Finds the edges that a line segment could touch, leaving out edges that are clearly on one
+     * side of its line, see {@link #edgesNearLine(double, double, double, double, double, Scratch)}
+     *
+     * @return The number of edges written to the scratch edge buffer
+     */
+    private int edgesNearLine(final double ax, final double ay, final double bx, final double by,
+                              final Scratch scratch) {
+        final double dx = bx - ax;
+        final double dy = by - ay;
+        final double sideError = sideError(ax, ay, dx, dy);
+        final EdgeGrid index = edgeIndex;
+        if (index == null)
+            return edgesNearLine(ax, ay, dx, dy, sideError, scratch);
+
+        // the candidates are scattered over the island, so they are tested one at a time
+        final int[] edges = scratch.edges;
+        final int edgeCount = index.collect(ax, ay, bx, by, scratch);
+        int count = 0;
+        for (int k = 0; k < edgeCount; k++) {
+            final int i = edges[k];
+            if (!isClearOfLine(i, next(i), ax, ay, dx, dy, sideError))
+                edges[count++] = i;
+        }
+        return count;
+    }
+
+    /**
+     * Finds every edge that is not clearly on one side of the line through (ox, oy) along (dx, dy),
+     * the same edges {@link #isClearOfLine} keeps. <br>
+     * The sides of all the vertices are computed in one batch, see {@link Geometry#sides}, so each
+     * vertex is rounded once for both of its edges. The edges are then classified without
+     * branches and packed into the scratch edge buffer in ascending order.
+     *
+     * @param sideError The bound from {@link #sideError}
+     * @return The number of edges written to the scratch edge buffer
+     */
+    private int edgesNearLine(final double ox, final double oy, final double dx, final double dy,
+                              final double sideError, final Scratch scratch) {
+        final double[] sides = scratch.sides;
+        final int[] edges = scratch.edges;
+        Geometry.sides(xpoints, ypoints, 0, npoints, ox, oy, dx, dy, sides);
+
+        int count = 0;
+        for (int r = 0; r + 1 < ringStart.length; r++) {
+            final int first = ringStart[r];
+            final int last = ringStart[r + 1] - 1;
+            for (int i = first; i < last; i++) {
+                // every edge is written and only the ones near the line are kept
+                edges[count] = i;
+                count += isNearLine(sides[i], sides[i + 1], sideError);
+            }
+            edges[count] = last;
+            count += isNearLine(sides[last], sides[first], sideError);
+        }
+        return count;
+    }
+
+    /**
+     * 1 unless both sides are clearly positive or clearly negative, the non short circuit
+     * operators leave nothing to branch on
+     */
+    private static int isNearLine(final double side1, final double side2, final double sideError) {
+        return (side1 > sideError & side2 > sideError) | (side1 < -sideError & side2 < -sideError) ? 0 : 1;
+    }
+
+    /**
+     * Checks if both ends of edge i are clearly on the same side of the line through (ox, oy) along (dx, dy),
+     * so the edge can not meet it. An edge close to the line is left to the exact predicates.
+     *
+     * @param sideError The bound from {@link #sideError}
+     */
+    private boolean isClearOfLine(final int i, final int j, final double ox, final double oy, final double dx,
+                                  final double dy, final double sideError) {
+        final double side1 = dx * (ypoints[i] - oy) - dy * (xpoints[i] - ox);
+        final double side2 = dx * (ypoints[j] - oy) - dy * (xpoints[j] - ox);
+        return side1 > sideError && side2 > sideError || side1 < -sideError && side2 < -sideError;
+    }
+
+    /**
+     * Finds where a ray hits edge i, deciding whether it hits exactly. Only the distance
+     * to the hit is rounded, and it is kept within the distances of the edge's end points
+     * along the ray, so an edge almost parallel to the ray never places the hit past its end.
+     */
+    private double exactHitParameter(final int i, final double x1, final double y1, final double x2, final double y2,
+                                     final double ox, final double oy, final double dx, final double dy) {
+        // the ends of the edge must not both be on one side of the ray's line or on it
+        final int side1 = Geometry.crossSign(0, 0, dx, dy, ox, oy, x1, y1);
+        final int side2 = Geometry.crossSign(0, 0, dx, dy, ox, oy, x2, y2);
+        if (side1 * side2 > 0 || side1 == side2)
+            return Double.POSITIVE_INFINITY;
+
+        // and the edge must be ahead of the origin, the sign of the ray crossed with the edge follows from the sides
+        final int denominatorSign = side2 != 0 ? side2 : -side1;
+        if (Geometry.orientation(ox, oy, x1, y1, x2, y2) * denominatorSign <= 0)
+            return Double.POSITIVE_INFINITY;
+
+        // an end point on the ray's line is the hit
+        final double lengthSq = dx * dx + dy * dy;
+        final double t1 = ((x1 - ox) * dx + (y1 - oy) * dy) / lengthSq;
+        final double t2 = ((x2 - ox) * dx + (y2 - oy) * dy) / lengthSq;
+        double t;
+        if (side1 == 0) {
+            t = t1;
+        } else if (side2 == 0) {
+            t = t2;
+        } else {
+            final double ex = edgeDx[i];
+            final double ey = edgeDy[i];
+            t = ((x1 - ox) * ey - (y1 - oy) * ex) / (dx * ey - dy * ex);
+            t = Math.max(Math.min(t1, t2), Math.min(Math.max(t1, t2), t));
+        }
+
+        return t > 0 ? t : Double.MIN_VALUE;
+    }
+
+    /**
+     * Finds the edges that a line segment could touch. Without an edge index
+     * every edge is a candidate.
+     *
+     * @return The number of candidate edges
+     */
+    private int candidateEdges(final EdgeGrid index, final double ax, final double ay, final double bx,
+                               final double by, final Scratch scratch) {
+        if (index == null)
+            return npoints;
+
+        return index.collect(ax, ay, bx, by, scratch);
+    }
+
+    /**
+     * The index of the first vertex of the k-th candidate edge, see {@link #candidateEdges}
+     */
+    private static int edgeAt(final EdgeGrid index, final int k, final Scratch scratch) {
+        return index == null ? k : scratch.edges[k];
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,86 @@
+package algorithms.airport;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in buckets that grow with the latency, so percentiles of any number of
+ * requests can be read from a fixed amount of memory. <br>
+ * Latencies are kept in microseconds. Below 16 microseconds every value has its own bucket,
+ * above that every power of two is split into 16 buckets, so a percentile is never more than
+ * a sixteenth above the true value. Recording is lock free.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records one latency
+     *
+     * @param nanos The latency in nanoseconds
+     */
+    void record(final long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos / 1000)));
+    }
+
+    /**
+     * The number of latencies recorded
+     */
+    long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            total += counts.get(i);
+        return total;
+    }
+
+    /**
+     * Finds the latency that the given fraction of requests were no slower than
+     *
+     * @param fraction The fraction, 0.99 for the 99th percentile
+     * @return The latency in milliseconds, rounded up to the top of its bucket, or 0 if nothing was recorded
+     */
+    double percentileMillis(final double fraction) {
+        final long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0)
+            return 0;
+
+        final long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return upperBound(i) / 1000.0;
+        }
+        return upperBound(BUCKETS - 1) / 1000.0;
+    }
+
+    private static int bucket(final long micros) {
+        if (micros < SUB_BUCKETS)
+            return (int) micros;
+
+        // the leading bit picks the power of two, the next four bits the bucket within it
+        final int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        final int sub = (int) (micros >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * The highest latency in microseconds that falls in a bucket
+     */
+    private static long upperBound(final int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        final int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        final long sub = SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
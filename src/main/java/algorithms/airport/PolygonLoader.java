@@ -0,0 +1,435 @@
+package algorithms.airport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes polygon files. <br>
+ * Two formats are supported. The text format has one vertex per line, an x and a
+ * y value separated by spaces or tabs. Values may be integers or decimals, with an
+ * optional exponent. A line holding only the word lake starts a lake of the island,
+ * and a line holding only the word island starts another island, so one file can hold
+ * an archipelago, see {@link #loadArchipelago(Path)}. The binary format starts with a
+ * 16 byte header, the magic number {@link #MAGIC}, the format version and the vertex
+ * count as little endian ints and 4 bytes of padding. It is followed by every x value
+ * and then every y value as little endian doubles. An island with lakes is written as
+ * version 2, where the padding holds the number of rings and the header is followed by
+ * the vertex count of each ring, padded to a multiple of 8 bytes. Binary files hold
+ * one island and are memory mapped so they load at the speed of a memory copy.
+ */
+public final class PolygonLoader {
+
+    /**
+     * The first four bytes of a binary polygon file, ISLD in ASCII
+     */
+    public static final int MAGIC = 0x444C5349;
+
+    private static final int VERSION = 1;
+    private static final int LAKES_VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * The words of the text format that start a new ring
+     */
+    private static final byte[] LAKE = "lake".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ISLAND = "island".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The longest number the text parser accepts
+     */
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    /**
+     * Powers of ten that are exact as doubles
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private PolygonLoader() {
+    }
+
+    /**
+     * Loads an island from a text or binary polygon file, the format is detected from
+     * the first bytes of the file
+     *
+     * @param file The polygon file
+     * @return The island or NULL if the file is not a valid polygon file or holds more than one island
+     * @throws IOException If the file cannot be read
+     */
+    public static Island load(final Path file) throws IOException {
+        final Coordinates coordinates = isBinary(file) ? readBinary(file) : readText(file);
+        return coordinates == null || coordinates.islandCount > 1 ? null : coordinates.toIslands().get(0);
+    }
+
+    /**
+     * Loads every island from a text or binary polygon file
+     *
+     * @param file The polygon file
+     * @return The islands in the order of the file, or NULL if the file is not a valid polygon file
+     * @throws IOException If the file cannot be read
+     */
+    public static List<Island> loadArchipelago(final Path file) throws IOException {
+        final Coordinates coordinates = isBinary(file) ? readBinary(file) : readText(file);
+        return coordinates == null ? null : coordinates.toIslands();
+    }
+
+    private static boolean isBinary(final Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            final byte[] magic = new byte[4];
+            int read = 0;
+            int n;
+            while (read < magic.length && (n = in.read(magic, read, magic.length - read)) > 0)
+                read += n;
+
+            return read == magic.length && ByteBuffer.wrap(magic).order(ByteOrder.LITTLE_ENDIAN).getInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Parses a text polygon file one byte at a time, so no strings are created
+     * for lines or values
+     */
+    private static Coordinates readText(final Path file) throws IOException {
+        final Coordinates coordinates = new Coordinates(1024);
+        final byte[] buffer = new byte[1 << 16];
+        final byte[] token = new byte[MAX_TOKEN_LENGTH];
+        final double[] values = new double[2];
+
+        int tokenLength = 0;
+        int valueCount = 0;
+        byte[] word = null;
+
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            boolean eof = false;
+
+            while (!eof) {
+                read = in.read(buffer);
+                if (read < 0) {
+                    // finish the last line as if it had a line break
+                    eof = true;
+                    read = 1;
+                    buffer[0] = '\n';
+                }
+
+                for (int i = 0; i < read; i++) {
+                    final byte c = buffer[i];
+
+                    if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                        if (tokenLength > 0) {
+                            if (valueCount == values.length || word != null)
+                                return null;
+
+                            final double value = parseDouble(token, tokenLength);
+                            if (Double.isFinite(value)) {
+                                values[valueCount++] = value;
+                            } else if (valueCount == 0 && isWord(LAKE, token, tokenLength)) {
+                                word = LAKE;
+                            } else if (valueCount == 0 && isWord(ISLAND, token, tokenLength)) {
+                                word = ISLAND;
+                            } else {
+                                return null;
+                            }
+                            tokenLength = 0;
+                        }
+
+                        if (c == '\n') {
+                            // blank lines are skipped, every other line must hold one vertex or one word
+                            if (valueCount == 1)
+                                return null;
+                            if (valueCount == 2)
+                                coordinates.add(values[0], values[1]);
+                            if (word != null)
+                                coordinates.startRing(coordinates.size, word == ISLAND);
+                            valueCount = 0;
+                            word = null;
+                        }
+                    } else {
+                        if (tokenLength == MAX_TOKEN_LENGTH)
+                            return null;
+                        token[tokenLength++] = c;
+                    }
+                }
+            }
+        }
+
+        return coordinates;
+    }
+
+    private static boolean isWord(final byte[] word, final byte[] token, final int length) {
+        if (length != word.length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (token[i] != word[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal number. Numbers with at most 15 significant digits and a small
+     * exponent are converted exactly with a single multiply or divide, anything else
+     * falls back to {@link Double#parseDouble(String)}.
+     *
+     * @param token  The characters of the number
+     * @param length The number of characters
+     * @return The number or NaN if the characters are not a number
+     */
+    static double parseDouble(final byte[] token, final int length) {
+        int i = 0;
+        boolean negative = false;
+        if (token[0] == '-' || token[0] == '+') {
+            negative = token[0] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+
+        for (; i < length; i++) {
+            final byte c = token[i];
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (mantissa == 0 && c == '0') {
+                    // leading zeros are not significant
+                    if (seenPoint)
+                        exponent--;
+                    continue;
+                }
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (seenPoint)
+                        exponent--;
+                } else if (!seenPoint) {
+                    exponent++;
+                }
+                digits++;
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else if ((c == 'e' || c == 'E') && seenDigit) {
+                break;
+            } else {
+                return Double.NaN;
+            }
+        }
+
+        if (!seenDigit)
+            return Double.NaN;
+
+        if (i < length) {
+            // skip the 'e' and read the exponent
+            i++;
+            boolean negativeExponent = false;
+            if (i < length && (token[i] == '-' || token[i] == '+')) {
+                negativeExponent = token[i] == '-';
+                i++;
+            }
+            if (i == length)
+                return Double.NaN;
+
+            int value = 0;
+            for (; i < length; i++) {
+                final byte c = token[i];
+                if (c < '0' || c > '9')
+                    return Double.NaN;
+                if (value < 100000)
+                    value = value * 10 + (c - '0');
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        final double result;
+        if (mantissa == 0) {
+            result = 0;
+        } else if (digits <= 15 && exponent >= -22 && exponent <= 22) {
+            // both the mantissa and the power of ten are exact, so the one rounding is correct
+            result = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            return Double.parseDouble(new String(token, 0, length, StandardCharsets.US_ASCII));
+        }
+
+        return negative ? -result : result;
+    }
+
+    /**
+     * Reads a binary polygon file through a memory mapping
+     */
+    private static Coordinates readBinary(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE)
+                return null;
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Binary polygon files are limited to 2GB.");
+
+            final MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+
+            final int magic = map.getInt();
+            final int version = map.getInt();
+            final int count = map.getInt();
+            final int rings = version == LAKES_VERSION ? map.getInt() : 1;
+
+            if (magic != MAGIC || version != VERSION && version != LAKES_VERSION || count < 0 || rings < 1
+                    || size != HEADER_SIZE + ringBytes(version, rings) + 16L * count)
+                return null;
+
+            final Coordinates coordinates = new Coordinates(count);
+            map.position(HEADER_SIZE);
+            // a version 1 file is a single ring and has no ring sizes
+            if (version == LAKES_VERSION) {
+                int start = 0;
+                for (int r = 0; r < rings; r++) {
+                    final int ringSize = map.getInt();
+                    if (ringSize < 0 || ringSize > count - start)
+                        return null;
+                    if (r > 0)
+                        coordinates.startRing(start, false);
+                    start += ringSize;
+                }
+                if (start != count)
+                    return null;
+            }
+
+            map.position(HEADER_SIZE + (int) ringBytes(version, rings));
+            final DoubleBuffer values = map.asDoubleBuffer();
+            values.get(coordinates.x, 0, count);
+            values.get(coordinates.y, 0, count);
+            coordinates.size = count;
+
+            return coordinates;
+        }
+    }
+
+    /**
+     * The number of bytes between the header and the vertices
+     */
+    private static long ringBytes(final int version, final int rings) {
+        return version == LAKES_VERSION ? (4L * rings + 7) / 8 * 8 : 0;
+    }
+
+    /**
+     * Writes an island as a binary polygon file
+     *
+     * @param island The island
+     * @param file   The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public static void writeBinary(final Island island, final Path file) throws IOException {
+        final int n = island.size();
+        final int rings = island.getLakeCount() + 1;
+        final int version = rings == 1 ? VERSION : LAKES_VERSION;
+        final long length = HEADER_SIZE + ringBytes(version, rings) + 16L * n;
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("Binary polygon files are limited to 2GB.");
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(version).putInt(n).putInt(version == VERSION ? 0 : rings);
+        for (int r = 0; version == LAKES_VERSION && r < rings; r++)
+            buffer.putInt(island.getRingStart(r + 1) - island.getRingStart(r));
+
+        buffer.position(HEADER_SIZE + (int) ringBytes(version, rings));
+        for (int i = 0; i < n; i++)
+            buffer.putDouble(island.xpoints[i]);
+        for (int i = 0; i < n; i++)
+            buffer.putDouble(island.ypoints[i]);
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(buffer.array());
+        }
+    }
+
+    /**
+     * A growable list of vertices, split into rings and islands
+     */
+    private static final class Coordinates {
+
+        private double[] x;
+        private double[] y;
+        private int size;
+
+        /**
+         * The first vertex of each ring, and the first ring of each island
+         */
+        private int[] rings = new int[4];
+        private int ringCount = 1;
+        private int[] islands = new int[4];
+        private int islandCount = 1;
+
+        Coordinates(final int capacity) {
+            x = new double[capacity];
+            y = new double[capacity];
+        }
+
+        void add(final double px, final double py) {
+            if (size == x.length) {
+                x = Arrays.copyOf(x, Math.max(16, size * 2));
+                y = Arrays.copyOf(y, x.length);
+            }
+            x[size] = px;
+            y[size] = py;
+            size++;
+        }
+
+        /**
+         * Starts a new ring, a lake or the coast of another island
+         *
+         * @param start  The first vertex of the ring
+         * @param island Whether the ring is the coast of another island
+         */
+        void startRing(final int start, final boolean island) {
+            // an island that has no vertices yet is simply continued
+            if (island && start == rings[ringCount - 1] && islands[islandCount - 1] == ringCount - 1)
+                return;
+
+            if (ringCount == rings.length)
+                rings = Arrays.copyOf(rings, ringCount * 2);
+            rings[ringCount++] = start;
+
+            if (island) {
+                if (islandCount == islands.length)
+                    islands = Arrays.copyOf(islands, islandCount * 2);
+                islands[islandCount++] = ringCount - 1;
+            }
+        }
+
+        List<Island> toIslands() {
+            final List<Island> result = new ArrayList<>(islandCount);
+            for (int k = 0; k < islandCount; k++) {
+                final int firstRing = islands[k];
+                final int lastRing = k + 1 < islandCount ? islands[k + 1] : ringCount;
+                final int from = rings[firstRing];
+                final int to = lastRing < ringCount ? rings[lastRing] : size;
+
+                final int[] ringStart = new int[lastRing - firstRing + 1];
+                for (int r = firstRing; r < lastRing; r++)
+                    ringStart[r - firstRing] = rings[r] - from;
+                ringStart[ringStart.length - 1] = to - from;
+
+                result.add(from == 0
+                        ? new Island(x, y, ringStart)
+                        : new Island(Arrays.copyOfRange(x, from, to), Arrays.copyOfRange(y, from, to), ringStart));
+            }
+            return result;
+        }
+    }
+}
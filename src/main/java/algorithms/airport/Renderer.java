@@ -1,19 +1,37 @@
 package algorithms.airport;
 
+import javax.imageio.ImageIO;
 import java.awt.*;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
-import java.awt.geom.Rectangle2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
 import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class Renderer {
 
+    /**
+     * Vertices closer than this many pixels to the last vertex drawn are skipped
+     */
+    private static final double MIN_STEP = 0.5;
+
     private Island poly;
-    private Line2D runway;
+    private Runway runway;
     private int width;
     private int height;
 
-    public Renderer(Island poly, Line2D runway) {
+    /**
+     * The transform from island to image co-ordinates, worked out once per image
+     */
+    private double scaleX;
+    private double scaleY;
+
+    public Renderer(Island poly, Runway runway) {
         this.poly = poly;
         this.runway = runway;
     }
@@ -33,46 +51,227 @@ public class Renderer {
      * @return The rendered image
      */
     public BufferedImage toImage(int width, int height) {
-        this.width = width;
-        this.height = height;
+        setSize(width, height);
 
         BufferedImage image = new BufferedImage(width + 1, height + 20, BufferedImage.TYPE_4BYTE_ABGR);
-        Graphics2D g2d = (Graphics2D) image.getGraphics();
+        Graphics2D g2d = image.createGraphics();
         g2d.clearRect(0, 0, width, height + 20);
 
         RenderingHints rh = new RenderingHints(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.addRenderingHints(rh);
 
         g2d.setColor(Color.GREEN);
-        String line = "(" + formatDouble(runway.getX1()) + "," + formatDouble(runway.getY1()) + ") to (" +
-                formatDouble(runway.getX2()) + "," + formatDouble(runway.getY2()) + ")";
-        g2d.drawString("n = " + poly.npoints + " Length = " + formatDouble(runway.getP1().distance(runway.getP2())) + " " + line, 5, height + 14);
-        // draw the text before the transformation occurs so we dont flip it
+        g2d.drawString(label(), 5, height + 14);
 
-        AffineTransform tx = AffineTransform.getScaleInstance(1, -1);
-        tx.translate(0, -height);
-        // we must flip the image along the y axis because the screen co-ordinates
-        // are opposite to the graphing standard
+        draw(g2d, coast());
+        g2d.dispose();
 
-        g2d.transform(tx);
-        g2d.setStroke(new BasicStroke(height / 125 == 0 ? 1 : height / 125));
-        // the line thickness will scale with the image size
+        return image;
+    }
 
+    /**
+     * Renders the Island and Runway to a PNG file. The height of the
+     * image is chosen to keep the aspect ratio of the polygon.
+     *
+     * @param file  The image file
+     * @param width The width of the polygon in the image
+     * @throws IOException If the file cannot be written
+     */
+    public void writePng(String file, int width) throws IOException {
+        writePng(toImage(width, imageHeight(width)), file);
+    }
 
-        g2d.setColor(Color.RED);
-        for (int i = 0; i < poly.npoints - 1; i++) {
-            g2d.drawLine(calculateX(poly.xpoints[i]), calculateY(poly.ypoints[i]), calculateX(poly.xpoints[i + 1]), calculateY(poly.ypoints[i + 1]));
+    /**
+     * Renders the Island and Runway on the calling thread and encodes the PNG file on
+     * the executor, so the caller can carry on while the file is written. <br>
+     * Encoding is usually slower than drawing.
+     *
+     * @param file     The image file
+     * @param width    The width of the polygon in the image
+     * @param executor The executor that encodes and writes the file
+     * @return Completes when the file is written, or with the IOException if it cannot be
+     */
+    public CompletableFuture<Void> writePngAsync(String file, int width, Executor executor) {
+        final BufferedImage img = toImage(width, imageHeight(width));
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        executor.execute(() -> {
+            try {
+                writePng(img, file);
+                written.complete(null);
+            } catch (IOException | RuntimeException e) {
+                written.completeExceptionally(e);
+            }
+        });
+
+        return written;
+    }
+
+    /**
+     * Renders the Island and Runway to a grid of square PNG tiles, for images too large
+     * to hold in memory at once. <br>
+     * The coast is built once and each tile draws it at its own offset into one reused
+     * buffer. Tiles are named row_column.png, counting from the top left, and have no label.
+     *
+     * @param directory The directory, it is created if it does not exist
+     * @param width     The width of the polygon in the whole image
+     * @param tileSize  The width and height of each tile
+     * @return The number of tiles written
+     * @throws IOException If a tile cannot be written
+     */
+    public int writeTiles(Path directory, int width, int tileSize) throws IOException {
+        if (tileSize < 1)
+            throw new IllegalArgumentException("Tile size must be at least 1.");
+
+        setSize(width, imageHeight(width));
+        final Path2D coast = coast();
+        Files.createDirectories(directory);
+
+        final int columns = (width + tileSize) / tileSize;
+        final int rows = (height + tileSize) / tileSize;
+        final BufferedImage tile = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_4BYTE_ABGR);
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                Graphics2D g2d = tile.createGraphics();
+                g2d.clearRect(0, 0, tileSize, tileSize);
+                g2d.addRenderingHints(new RenderingHints(RenderingHints.KEY_ANTIALIASING,
+                        RenderingHints.VALUE_ANTIALIAS_ON));
+                g2d.translate(-column * tileSize, -row * tileSize);
+                draw(g2d, coast);
+                g2d.dispose();
+
+                writePng(tile, directory.resolve(row + "_" + column + ".png").toString());
+            }
+        }
+
+        return rows * columns;
+    }
+
+    /**
+     * Renders the Island and Runway to an SVG file, the same picture as {@link #writePng}
+     * with the coast as a single path
+     *
+     * @param file  The image file
+     * @param width The width of the polygon in the image
+     * @throws IOException If the file cannot be written
+     */
+    public void writeSvg(String file, int width) throws IOException {
+        setSize(width, imageHeight(width));
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + (width + 1) + "\" height=\""
+                    + (height + 20) + "\">\n");
+            out.write("<rect width=\"100%\" height=\"100%\" fill=\"#000000\"/>\n");
+
+            out.write("<path fill=\"none\" stroke=\"#ff0000\" stroke-width=\"" + strokeWidth()
+                    + "\" stroke-linejoin=\"miter\" d=\"");
+            final double[] coords = new double[6];
+            for (PathIterator it = coast().getPathIterator(null); !it.isDone(); it.next()) {
+                final int type = it.currentSegment(coords);
+                if (type == PathIterator.SEG_CLOSE) {
+                    out.write('Z');
+                } else {
+                    out.write((type == PathIterator.SEG_MOVETO ? "M" : "L") + svgNumber(coords[0]) + ' '
+                            + svgNumber(coords[1]) + ' ');
+                }
+            }
+            out.write("\"/>\n");
+
+            out.write("<line x1=\"" + svgNumber(calculateX(runway.getX1())) + "\" y1=\""
+                    + svgNumber(calculateY(runway.getY1())) + "\" x2=\"" + svgNumber(calculateX(runway.getX2()))
+                    + "\" y2=\"" + svgNumber(calculateY(runway.getY2())) + "\" stroke=\"#00ff00\" stroke-width=\""
+                    + strokeWidth() + "\"/>\n");
+            out.write("<text x=\"5\" y=\"" + (height + 14) + "\" fill=\"#00ff00\" font-family=\"sans-serif\" "
+                    + "font-size=\"12\">" + label() + "</text>\n");
+            out.write("</svg>\n");
         }
-        // connect last vertex to the first
-        g2d.drawLine(calculateX(poly.xpoints[poly.size() - 1]), calculateY(poly.ypoints[poly.size() - 1]),
-                calculateX(poly.xpoints[0]), calculateY(poly.ypoints[0]));
-        g2d.setColor(Color.BLACK);
+    }
+
+    /**
+     * Sets the size of the polygon in the image and works out the transform for it
+     */
+    private void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.scaleX = width / poly.getWidth();
+        this.scaleY = height / poly.getHeight();
+    }
+
+    /**
+     * The height that keeps the aspect ratio of the polygon at the given width
+     */
+    private int imageHeight(int width) {
+        return (int) (poly.getHeight() / poly.getWidth() * width);
+    }
+
+    /**
+     * Builds the coast as one path in image co-ordinates, with each lake as a closed
+     * subpath of its own. Vertices that land within half a pixel of the last vertex
+     * drawn are skipped, so an island with far more vertices than pixels draws in time
+     * proportional to the image rather than the island.
+     */
+    private Path2D coast() {
+        final int n = poly.size();
+        final Path2D.Double path = new Path2D.Double(Path2D.WIND_EVEN_ODD, Math.min(n, 4 * (width + height)) + 1);
+
+        for (int r = 0; r <= poly.getLakeCount(); r++) {
+            final int start = poly.getRingStart(r);
+            final int end = poly.getRingStart(r + 1);
+
+            double lastX = calculateX(poly.getX(start));
+            double lastY = calculateY(poly.getY(start));
+            path.moveTo(lastX, lastY);
+
+            for (int i = start + 1; i < end; i++) {
+                final double x = calculateX(poly.getX(i));
+                final double y = calculateY(poly.getY(i));
+                if (Math.abs(x - lastX) < MIN_STEP && Math.abs(y - lastY) < MIN_STEP)
+                    continue;
+
+                path.lineTo(x, y);
+                lastX = x;
+                lastY = y;
+            }
+            // connect last vertex to the first
+            path.closePath();
+        }
+
+        return path;
+    }
+
+    /**
+     * Draws the coast and the runway
+     */
+    private void draw(Graphics2D g2d, Path2D coast) {
+        g2d.setStroke(new BasicStroke(strokeWidth()));
+        // the line thickness will scale with the image size
+
+        g2d.setColor(Color.RED);
+        g2d.draw(coast);
 
         g2d.setColor(Color.GREEN);
-        g2d.drawLine(calculateX(runway.getX1()), calculateY(runway.getY1()),
-                calculateX(runway.getX2()), calculateY(runway.getY2()));
+        g2d.draw(new Line2D.Double(calculateX(runway.getX1()), calculateY(runway.getY1()),
+                calculateX(runway.getX2()), calculateY(runway.getY2())));
+    }
 
-        return image;
+    private int strokeWidth() {
+        return height / 125 == 0 ? 1 : height / 125;
+    }
+
+    /**
+     * The text displayed at the bottom of the image
+     */
+    private String label() {
+        String line = "(" + formatDouble(runway.getX1()) + "," + formatDouble(runway.getY1()) + ") to (" +
+                formatDouble(runway.getX2()) + "," + formatDouble(runway.getY2()) + ")";
+        return "n = " + poly.size() + " Length = " + formatDouble(runway.getLength()) + " " + line;
+    }
+
+    private static void writePng(BufferedImage img, String file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            ImageIO.write(img, "png", out);
+        }
     }
 
     /**
@@ -81,20 +280,27 @@ public class Renderer {
      * @param x The X co-ordinate in the polygon
      * @return The X co-ordinate of the vertex in the image
      */
-    private int calculateX(double x) {
-        Rectangle2D bounds = poly.getBounds();
-        return (int) (((x - bounds.getX()) / bounds.getWidth()) * (width));
+    private double calculateX(double x) {
+        return (x - poly.getMinX()) * scaleX;
     }
 
     /**
-     * Calculates the Y co-ordinate in the image for the given Y co-ordinate in the polygon.
+     * Calculates the Y co-ordinate in the image for the given Y co-ordinate in the polygon. <br>
+     * The image is flipped along the y axis because the screen co-ordinates
+     * are opposite to the graphing standard.
      *
      * @param y The Y co-ordinate in the polygon
      * @return The Y co-ordinate of the vertex in the image
      */
-    private int calculateY(double y) {
-        Rectangle2D bounds = poly.getBounds();
-        return (int) (((y - bounds.getY()) / bounds.getHeight()) * (height));
+    private double calculateY(double y) {
+        return height - (y - poly.getMinY()) * scaleY;
+    }
+
+    /**
+     * Formats an image co-ordinate to 2 decimal places, well below a pixel
+     */
+    private static String svgNumber(double d) {
+        return "" + (Math.round(d * 100d) / 100d);
     }
 
     /**
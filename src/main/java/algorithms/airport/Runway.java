@@ -0,0 +1,68 @@
+package algorithms.airport;
+
+/**
+ * A runway, the line segment from (x1, y1) to (x2, y2) inside an island
+ */
+public final class Runway {
+
+    private final double x1;
+    private final double y1;
+    private final double x2;
+    private final double y2;
+    private final double length;
+
+    /**
+     * Constructs a runway between two points
+     */
+    public Runway(final double x1, final double y1, final double x2, final double y2) {
+        this(x1, y1, x2, y2, Geometry.distance(x1, y1, x2, y2));
+    }
+
+    Runway(final double x1, final double y1, final double x2, final double y2, final double length) {
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.length = length;
+    }
+
+    /**
+     * The x value of the start of the runway
+     */
+    public double getX1() {
+        return x1;
+    }
+
+    /**
+     * The y value of the start of the runway
+     */
+    public double getY1() {
+        return y1;
+    }
+
+    /**
+     * The x value of the end of the runway
+     */
+    public double getX2() {
+        return x2;
+    }
+
+    /**
+     * The y value of the end of the runway
+     */
+    public double getY2() {
+        return y2;
+    }
+
+    /**
+     * The length of the runway
+     */
+    public double getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x1 + "," + y1 + ") to (" + x2 + "," + y2 + ")";
+    }
+}
@@ -0,0 +1,490 @@
+package algorithms.airport;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the runways of islands that have already been solved. <br>
+ * Islands are keyed by their vertex ring in a canonical form, starting at the lowest
+ * vertex and walking in whichever direction gives the lower sequence, so the same ring
+ * given from another start vertex or in the opposite direction is a hit. The cache can
+ * also ignore translation, in which case the ring is stored relative to its start vertex
+ * and the cached runway is moved onto the island it is returned for. Hits compare the
+ * full ring, so two islands that only share a hash are never confused. The lakes of an
+ * island are part of its key, each put in canonical form the same way and kept in the
+ * order they were given. <br>
+ * The least recently used islands are evicted once the cache holds more than its
+ * maximum number of islands or vertices. The cache is thread safe, islands are solved
+ * outside the lock so a slow calculation never blocks hits.
+ */
+public class RunwayCache {
+
+    /**
+     * The first four bytes of a cache file, RWYC in ASCII
+     */
+    private static final int MAGIC = 0x52575943;
+    private static final int VERSION = 2;
+
+    /**
+     * Cache files written before islands had lakes, every island is a single ring
+     */
+    private static final int SINGLE_RING_VERSION = 1;
+
+    private final boolean translationInvariant;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxEntries;
+    private long maxVertices = Long.MAX_VALUE;
+    private long vertexCount;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructs a cache that treats translated islands as different islands
+     *
+     * @param maxEntries The most islands the cache holds
+     */
+    public RunwayCache(final int maxEntries) {
+        this(maxEntries, false);
+    }
+
+    /**
+     * Constructs a cache
+     *
+     * @param maxEntries           The most islands the cache holds
+     * @param translationInvariant Whether translated copies of an island share a runway. Copies
+     *                             only match when the translation is exact in floating point,
+     *                             as it is for integer coordinates.
+     */
+    public RunwayCache(final int maxEntries, final boolean translationInvariant) {
+        setMaxEntries(maxEntries);
+        this.translationInvariant = translationInvariant;
+    }
+
+    /**
+     * Sets the most islands the cache holds
+     *
+     * @param maxEntries The number of islands
+     */
+    public synchronized void setMaxEntries(final int maxEntries) {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("The cache must hold at least 1 island.");
+        this.maxEntries = maxEntries;
+        evict();
+    }
+
+    /**
+     * Sets the most vertices the cached islands may have between them, so the cache
+     * can be bounded by memory rather than by island count. Unbounded by default.
+     *
+     * @param maxVertices The number of vertices
+     */
+    public synchronized void setMaxVertices(final long maxVertices) {
+        if (maxVertices < 1)
+            throw new IllegalArgumentException("The cache must hold at least 1 vertex.");
+        this.maxVertices = maxVertices;
+        evict();
+    }
+
+    /**
+     * Whether translated copies of an island share a runway
+     */
+    public boolean isTranslationInvariant() {
+        return translationInvariant;
+    }
+
+    /**
+     * Finds the longest runway on the calculator's island, solving it only if the
+     * island is not already cached
+     *
+     * @param calculator The calculator to solve the island with
+     * @return The runway or NULL if no two vertices form a valid runway
+     */
+    public Runway calculate(final AirportCalculator calculator) {
+        final Island island = calculator.getIsland();
+        final Key key = new Key(island, translationInvariant);
+
+        synchronized (this) {
+            final Entry entry = entries.get(key);
+            if (entry != null) {
+                hitCount++;
+                return entry.toRunway(key);
+            }
+            missCount++;
+        }
+
+        final Runway runway = calculator.calculate();
+        put(key, new Entry(runway, key));
+        return runway;
+    }
+
+    /**
+     * Looks up an island without solving it
+     *
+     * @param island The island
+     * @return The cached runway or NULL if the island is not cached or has no valid runway
+     */
+    public synchronized Runway get(final Island island) {
+        final Key key = new Key(island, translationInvariant);
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        return entry.toRunway(key);
+    }
+
+    private synchronized void put(final Key key, final Entry entry) {
+        if (entries.put(key, entry) == null)
+            vertexCount += key.x.length;
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<Key> keys = entries.keySet().iterator();
+        while (keys.hasNext() && (entries.size() > maxEntries || vertexCount > maxVertices)) {
+            vertexCount -= keys.next().x.length;
+            keys.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Empties the cache, the statistics are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        vertexCount = 0;
+    }
+
+    /**
+     * The number of cached islands
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * The number of vertices in the cached islands
+     */
+    public synchronized long getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * The number of lookups that found their island
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * The number of lookups that did not find their island
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * The number of islands evicted to stay within the limits
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * The share of lookups that found their island, or 0 before the first lookup
+     */
+    public synchronized double getHitRate() {
+        final long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * Writes every cached island to a file so the cache can be restored after a restart. <br>
+     * The file is written next to the target and then moved over it, so a crash never
+     * leaves a partial cache file behind.
+     *
+     * @param file The cache file
+     * @throws IOException If the file cannot be written
+     */
+    public void save(final Path file) throws IOException {
+        final Map<Key, Entry> snapshot;
+        synchronized (this) {
+            snapshot = new LinkedHashMap<>(entries);
+        }
+
+        final Path directory = file.toAbsolutePath().getParent();
+        final Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeBoolean(translationInvariant);
+                out.writeInt(snapshot.size());
+
+                // least recently used first, so loading restores the order
+                for (final Map.Entry<Key, Entry> e : snapshot.entrySet()) {
+                    final Key key = e.getKey();
+                    final Entry entry = e.getValue();
+
+                    out.writeInt(key.ringStart.length - 1);
+                    for (int r = 1; r < key.ringStart.length; r++)
+                        out.writeInt(key.ringStart[r] - key.ringStart[r - 1]);
+                    for (int i = 0; i < key.x.length; i++) {
+                        out.writeDouble(key.x[i]);
+                        out.writeDouble(key.y[i]);
+                    }
+
+                    out.writeBoolean(entry.hasRunway);
+                    if (entry.hasRunway) {
+                        out.writeDouble(entry.x1);
+                        out.writeDouble(entry.y1);
+                        out.writeDouble(entry.x2);
+                        out.writeDouble(entry.y2);
+                        out.writeDouble(entry.length);
+                    }
+                }
+            }
+
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Adds the islands from a file written by {@link #save(Path)}. A missing file is
+     * treated as an empty cache. Islands beyond the cache limits are evicted as usual.
+     *
+     * @param file The cache file
+     * @return The number of islands read
+     * @throws IOException If the file cannot be read, is not a cache file or was saved
+     *                     with a different translation setting
+     */
+    public int load(final Path file) throws IOException {
+        if (!Files.exists(file))
+            return 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a runway cache file.");
+            final int version = in.readInt();
+            if (version != VERSION && version != SINGLE_RING_VERSION)
+                throw new IOException("Not a runway cache file.");
+            if (in.readBoolean() != translationInvariant)
+                throw new IOException("The cache file was saved with a different translation setting.");
+
+            final int count = in.readInt();
+            for (int c = 0; c < count; c++) {
+                final int rings = version == SINGLE_RING_VERSION ? 1 : in.readInt();
+                if (rings < 1)
+                    throw new IOException("Corrupt runway cache file.");
+
+                final int[] ringStart = new int[rings + 1];
+                for (int r = 1; r <= rings; r++) {
+                    final int size = in.readInt();
+                    if (size < 3 || ringStart[r - 1] > Integer.MAX_VALUE - size)
+                        throw new IOException("Corrupt runway cache file.");
+                    ringStart[r] = ringStart[r - 1] + size;
+                }
+
+                final int n = ringStart[rings];
+
+                final double[] x = new double[n];
+                final double[] y = new double[n];
+                for (int i = 0; i < n; i++) {
+                    x[i] = in.readDouble();
+                    y[i] = in.readDouble();
+                }
+
+                final Entry entry = in.readBoolean()
+                        ? new Entry(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble())
+                        : new Entry();
+                put(new Key(x, y, ringStart), entry);
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * An island's vertex rings in canonical form
+     */
+    private static final class Key {
+
+        private final double[] x;
+        private final double[] y;
+        private final int[] ringStart;
+        private final int hash;
+
+        /**
+         * The offset the ring was moved by, added back to cached runways
+         */
+        private final double offsetX;
+        private final double offsetY;
+
+        Key(final Island island, final boolean translationInvariant) {
+            final double[] px = island.xpoints;
+            final double[] py = island.ypoints;
+            ringStart = island.ringStart.clone();
+
+            // the offset is the lowest vertex of the coast, so the lakes move with it
+            int lowest = 0;
+            for (int i = 1; i < ringStart[1]; i++) {
+                if (px[i] < px[lowest] || px[i] == px[lowest] && py[i] < py[lowest])
+                    lowest = i;
+            }
+            offsetX = translationInvariant ? px[lowest] : 0;
+            offsetY = translationInvariant ? py[lowest] : 0;
+
+            x = new double[island.npoints];
+            y = new double[island.npoints];
+            for (int r = 0; r + 1 < ringStart.length; r++)
+                canonicalize(px, py, ringStart[r], ringStart[r + 1]);
+            hash = hash(x, y, ringStart);
+        }
+
+        Key(final double[] x, final double[] y, final int[] ringStart) {
+            this.x = x;
+            this.y = y;
+            this.ringStart = ringStart;
+            this.offsetX = 0;
+            this.offsetY = 0;
+            this.hash = hash(x, y, ringStart);
+        }
+
+        /**
+         * Copies the ring of vertices from to to - 1 into the key, starting at its lowest
+         * vertex and walking in whichever direction gives the lower sequence
+         */
+        private void canonicalize(final double[] px, final double[] py, final int from, final int to) {
+            final int n = to - from;
+
+            // the ring starts at its lowest vertex, ties are settled by the rest of the ring
+            int start = from;
+            int step = 1;
+            for (int i = from; i < to; i++) {
+                if (px[i] < px[start] || px[i] == px[start] && py[i] < py[start]) {
+                    start = i;
+                }
+            }
+
+            for (int i = from; i < to; i++) {
+                if (px[i] != px[start] || py[i] != py[start])
+                    continue;
+                for (int direction = -1; direction <= 1; direction += 2) {
+                    if (compare(px, py, from, n, i, direction, start, step) < 0) {
+                        start = i;
+                        step = direction;
+                    }
+                }
+            }
+
+            for (int i = from, j = start; i < to; i++, j = from + Math.floorMod(j - from + step, n)) {
+                x[i] = px[j] - offsetX;
+                y[i] = py[j] - offsetY;
+            }
+        }
+
+        /**
+         * Compares a ring of n vertices starting at vertex from, walked from two starts in two directions
+         */
+        private static int compare(final double[] px, final double[] py, final int from, final int n,
+                                   final int startA, final int stepA, final int startB, final int stepB) {
+            for (int i = 0, a = startA, b = startB; i < n; i++) {
+                int result = Double.compare(px[a], px[b]);
+                if (result == 0)
+                    result = Double.compare(py[a], py[b]);
+                if (result != 0)
+                    return result;
+
+                a = from + Math.floorMod(a - from + stepA, n);
+                b = from + Math.floorMod(b - from + stepB, n);
+            }
+            return 0;
+        }
+
+        private static int hash(final double[] x, final double[] y, final int[] ringStart) {
+            long h = Arrays.hashCode(ringStart);
+            for (int i = 0; i < x.length; i++) {
+                h = (h ^ Double.doubleToLongBits(x[i])) * 0x9E3779B97F4A7C15L;
+                h = (h ^ Double.doubleToLongBits(y[i])) * 0x9E3779B97F4A7C15L;
+            }
+            return (int) (h ^ h >>> 32);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+
+            final Key key = (Key) o;
+            return hash == key.hash && Arrays.equals(ringStart, key.ringStart) && Arrays.equals(x, key.x)
+                    && Arrays.equals(y, key.y);
+        }
+    }
+
+    /**
+     * A cached runway relative to the canonical ring, or no runway
+     */
+    private static final class Entry {
+
+        private final boolean hasRunway;
+        private final double x1;
+        private final double y1;
+        private final double x2;
+        private final double y2;
+        private final double length;
+
+        Entry() {
+            this(false, 0, 0, 0, 0, 0);
+        }
+
+        Entry(final double x1, final double y1, final double x2, final double y2, final double length) {
+            this(true, x1, y1, x2, y2, length);
+        }
+
+        Entry(final Runway runway, final Key key) {
+            this(runway != null,
+                    runway == null ? 0 : runway.getX1() - key.offsetX,
+                    runway == null ? 0 : runway.getY1() - key.offsetY,
+                    runway == null ? 0 : runway.getX2() - key.offsetX,
+                    runway == null ? 0 : runway.getY2() - key.offsetY,
+                    runway == null ? 0 : runway.getLength());
+        }
+
+        private Entry(final boolean hasRunway, final double x1, final double y1, final double x2, final double y2,
+                      final double length) {
+            this.hasRunway = hasRunway;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+            this.length = length;
+        }
+
+        Runway toRunway(final Key key) {
+            if (!hasRunway)
+                return null;
+            return new Runway(x1 + key.offsetX, y1 + key.offsetY, x2 + key.offsetX, y2 + key.offsetY, length);
+        }
+    }
+}
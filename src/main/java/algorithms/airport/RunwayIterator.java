@@ -0,0 +1,387 @@
+package algorithms.airport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Lists the distinct runways of an island from longest to shortest. <br>
+ * Pairs are produced on demand. Each vertex a is a row holding the pairs (a, b) with
+ * b &gt; a, and a row is only bounded once its own bound reaches the top: the distance to
+ * the farthest corner of the bounding box for a vertex of the convex hull, since a line
+ * through a hull vertex leaves the hull there, or the diagonal of the box otherwise. A
+ * row bounds its pairs by the chord the bounding box cuts from the line through them and
+ * keeps only a batch of the highest in a heap, taking a twice as large batch whenever the
+ * heap runs below the pairs left out. A pair is tightened to the chord the convex hull
+ * cuts when it reaches the top of its row. A runway is only returned once every pair whose bound could beat it has
+ * been tested, so the first runways are found after bounding a small share of the pairs.
+ * Runways of equal length are returned in the same order as {@link AirportCalculator#calculate(int)}.
+ */
+final class RunwayIterator implements Iterator<Runway> {
+
+    /**
+     * Marks a pair whose bound is already the hull chord
+     */
+    private static final long TIGHT = 1L << 31;
+
+    /**
+     * The number of pairs a row takes into its heap the first time it is bounded
+     */
+    private static final int FIRST_BATCH = 32;
+
+    private final Island poly;
+    private final double tolerance;
+    private final Scratch scratch;
+    private final double[] start = new double[2];
+    private final double[] end = new double[2];
+    private final ConvexHull hull;
+
+    /**
+     * The bound on every runway through each vertex
+     */
+    private final float[] rowBounds;
+
+    /**
+     * The rows with untested pairs, packed as the float bits of the highest bound in the
+     * row and the row
+     */
+    private final LongHeap rows;
+
+    /**
+     * The bounded, untested pairs of each row, packed as the float bits of their bound, the
+     * {@link #TIGHT} flag and b, or NULL for a row that has not been bounded yet
+     */
+    private final LongHeap[] rowPairs;
+
+    /**
+     * The packed pair that every pair left out of each row's heap is below, 0 once the
+     * heap has taken every pair
+     */
+    private final long[] cutoffs;
+
+    /**
+     * The size of the last batch each row took into its heap
+     */
+    private final int[] batches;
+
+    /**
+     * Tested runways that have not been returned yet, longest first
+     */
+    private final PriorityQueue<Candidate> found = new PriorityQueue<>((p, q) -> {
+        final int result = Double.compare(q.runway.getLength(), p.runway.getLength());
+        return result != 0 ? result : Long.compare(q.sequence, p.sequence);
+    });
+
+    /**
+     * Returned runways that are long enough to be the same as a runway still to come
+     */
+    private final List<Runway> returned = new ArrayList<>();
+
+    private Runway next;
+
+    /**
+     * @param poly      The island
+     * @param tolerance The distance within which two end points are the same
+     */
+    RunwayIterator(final Island poly, final double tolerance) {
+        this.poly = poly;
+        this.tolerance = tolerance;
+        this.scratch = poly.createScratch();
+        this.hull = new ConvexHull(poly);
+
+        final int n = poly.npoints;
+        final boolean[] corners = new boolean[n];
+        if (hull.size() >= 3) {
+            for (int i = 0; i < hull.size(); i++)
+                corners[hull.getIndex(i)] = true;
+        }
+
+        final double diagonal = Math.hypot(poly.getWidth(), poly.getHeight());
+        rowBounds = new float[n];
+        rowPairs = new LongHeap[n];
+        cutoffs = new long[n];
+        batches = new int[n];
+
+        final long[] keys = new long[Math.max(n - 1, 0)];
+        for (int a = 0; a < n; a++) {
+            final double x = poly.xpoints[a];
+            final double y = poly.ypoints[a];
+
+            double bound = diagonal;
+            if (corners[a]) {
+                final double dx = Math.max(x - poly.getMinX(), poly.getMaxX() - x);
+                final double dy = Math.max(y - poly.getMinY(), poly.getMaxY() - y);
+                bound = Math.min(bound, Math.hypot(dx, dy));
+            }
+
+            rowBounds[a] = roundUp(bound * (1 + AirportCalculator.BOUND_SLACK));
+            if (a < n - 1)
+                keys[a] = pack(rowBounds[a], a);
+        }
+        rows = new LongHeap(keys);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null)
+            next = advance();
+        return next != null;
+    }
+
+    @Override
+    public Runway next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        final Runway runway = next;
+        next = null;
+        return runway;
+    }
+
+    /**
+     * Finds the next distinct runway
+     *
+     * @return The runway or NULL if every runway has been returned
+     */
+    private Runway advance() {
+        final int n = poly.npoints;
+
+        while (true) {
+            // test pairs until none of the remaining ones could beat the longest runway found
+            float bound;
+            while ((bound = nextBound()) >= 0 && (found.isEmpty() || bound >= found.peek().runway.getLength())) {
+                final int a = (int) rows.poll();
+                final int b = (int) (rowPairs[a].poll() & ~TIGHT);
+                final float rest = rowBound(a);
+                if (rest >= 0)
+                    rows.add(pack(rest, a));
+
+                if (poly.containsLine(a, b, scratch)) {
+                    final double dist = AirportCalculator.evaluate(poly, a, b, scratch, start, end);
+                    found.add(new Candidate(new Runway(start[0], start[1], end[0], end[1], dist), (long) a * n + b));
+                }
+            }
+
+            final Candidate candidate = found.poll();
+            if (candidate == null)
+                return null;
+
+            if (isReturned(candidate.runway))
+                continue;
+
+            returned.add(candidate.runway);
+            return candidate.runway;
+        }
+    }
+
+    /**
+     * Brings the untested pair with the highest bound to the top of the first row, bounding
+     * rows and tightening pairs as they reach the top
+     *
+     * @return The bound of that pair or -1 if every pair has been tested
+     */
+    private float nextBound() {
+        while (rows.size() > 0) {
+            final int a = (int) rows.peek();
+            final LongHeap pairs = rowPairs[a];
+
+            if (pairs == null || pairs.size() == 0 || bound(pairs.peek()) < leftOut(a)) {
+                takeBatch(a);
+            } else {
+                final long top = pairs.peek();
+                if ((top & TIGHT) != 0)
+                    return bound(top);
+
+                // the hull chord is never longer than the box chord, the min only guards rounding
+                final int b = (int) top;
+                final float chord = roundUp(hull.chordLength(poly.xpoints[a], poly.ypoints[a],
+                        poly.xpoints[b] - poly.xpoints[a], poly.ypoints[b] - poly.ypoints[a])
+                        * (1 + AirportCalculator.BOUND_SLACK));
+                pairs.poll();
+                pairs.add(pack(Math.min(chord, bound(top)), b) | TIGHT);
+            }
+
+            rows.poll();
+            final float bound = rowBound(a);
+            if (bound >= 0)
+                rows.add(pack(bound, a));
+        }
+        return -1;
+    }
+
+    /**
+     * The highest bound of the untested pairs in a row
+     *
+     * @return The bound or -1 if every pair in the row has been tested
+     */
+    private float rowBound(final int a) {
+        final LongHeap pairs = rowPairs[a];
+        return Math.max(pairs == null || pairs.size() == 0 ? -1 : bound(pairs.peek()), leftOut(a));
+    }
+
+    /**
+     * The highest bound of the pairs a row has left out of its heap
+     *
+     * @return The bound or -1 if the heap has taken every pair
+     */
+    private float leftOut(final int a) {
+        if (rowPairs[a] == null)
+            return rowBounds[a];
+        return cutoffs[a] == 0 ? -1 : bound(cutoffs[a]);
+    }
+
+    /**
+     * Bounds every pair of a row by the chord the bounding box cuts from its line and takes
+     * the highest of those below the cutoff into the row's heap
+     */
+    private void takeBatch(final int a) {
+        if (rowPairs[a] == null) {
+            rowPairs[a] = new LongHeap(new long[0]);
+            cutoffs[a] = Long.MAX_VALUE;
+            batches[a] = FIRST_BATCH;
+        } else {
+            batches[a] *= 2;
+        }
+
+        final int n = poly.npoints;
+        final double ax = poly.xpoints[a];
+        final double ay = poly.ypoints[a];
+        final int size = batches[a];
+
+        // the batch is kept negated so its top is the lowest pair taken
+        final LongHeap batch = new LongHeap(new long[Math.min(size, n - 1 - a)], 0);
+        for (int b = a + 1; b < n; b++) {
+            final double chord = Geometry.boxChordLength(poly.getMinX(), poly.getMinY(), poly.getMaxX(), poly.getMaxY(),
+                    ax, ay, poly.xpoints[b] - ax, poly.ypoints[b] - ay) * (1 + AirportCalculator.BOUND_SLACK);
+            final long pair = pack(Math.min(roundUp(chord), Math.min(rowBounds[a], rowBounds[b])), b);
+
+            if (pair >= cutoffs[a])
+                continue;
+            if (batch.size() < size) {
+                batch.add(-pair);
+            } else if (pair > -batch.peek()) {
+                batch.poll();
+                batch.add(-pair);
+            }
+        }
+
+        cutoffs[a] = batch.size() < size ? 0 : -batch.peek();
+        while (batch.size() > 0)
+            rowPairs[a].add(-batch.poll());
+    }
+
+    /**
+     * Rounds up so a bound never drops below the true chord
+     */
+    private static float roundUp(final double bound) {
+        final float rounded = (float) bound;
+        return rounded < bound ? Math.nextUp(rounded) : rounded;
+    }
+
+    /**
+     * Packs a bound with an index, non negative floats order the same way as their bits
+     */
+    private static long pack(final float bound, final int index) {
+        return (long) Float.floatToIntBits(bound) << 32 | index;
+    }
+
+    private static float bound(final long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    /**
+     * Checks if a runway is the same as one that has already been returned. Runways with the
+     * same end points are almost the same length, so longer returned runways are forgotten.
+     */
+    private boolean isReturned(final Runway runway) {
+        final double reach = runway.getLength() + 4 * tolerance;
+        returned.removeIf(r -> r.getLength() > reach);
+
+        for (final Runway r : returned) {
+            if (TopRunways.same(r, runway, tolerance))
+                return true;
+        }
+        return false;
+    }
+
+    private static class Candidate {
+
+        private final Runway runway;
+        private final long sequence;
+
+        Candidate(final Runway runway, final long sequence) {
+            this.runway = runway;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * A binary max heap of longs
+     */
+    private static final class LongHeap {
+
+        private long[] heap;
+        private int size;
+
+        /**
+         * Builds a heap from the given values, which it takes ownership of
+         */
+        LongHeap(final long[] values) {
+            this(values, values.length);
+        }
+
+        /**
+         * Builds a heap from the first values of the given array, which it takes ownership of
+         */
+        LongHeap(final long[] values, final int size) {
+            heap = values;
+            this.size = size;
+            for (int i = size / 2 - 1; i >= 0; i--)
+                siftDown(i);
+        }
+
+        int size() {
+            return size;
+        }
+
+        long peek() {
+            return heap[0];
+        }
+
+        long poll() {
+            final long top = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+            return top;
+        }
+
+        void add(final long value) {
+            if (size == heap.length)
+                heap = Arrays.copyOf(heap, Math.max(2 * size, 4));
+
+            int i = size++;
+            while (i > 0 && heap[(i - 1) / 2] < value) {
+                heap[i] = heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heap[i] = value;
+        }
+
+        private void siftDown(int i) {
+            final long value = heap[i];
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1] > heap[child])
+                    child++;
+                if (heap[child] <= value)
+                    break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = value;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package algorithms.airport;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffers for the queries made against one island. <br>
+ * A scratch is not thread safe, each thread must use its own.
+ */
+public final class Scratch {
+
+    /**
+     * Intersections stored as x, y and a sort key, see {@link Geometry#STRIDE}
+     */
+    final double[] intersections;
+
+    /**
+     * Edge indices collected from the edge index
+     */
+    final int[] edges;
+
+    /**
+     * The side of a line that each vertex lies on, see {@link Geometry#sides}
+     */
+    final double[] sides;
+
+    /**
+     * The query in which each edge was last collected, used to skip duplicates
+     */
+    final int[] marks;
+
+    int query;
+
+    /**
+     * Counters indexed by {@link CalculatorStats}, or NULL when statistics are disabled
+     */
+    long[] counts;
+
+    Scratch(final int edgeCount) {
+        intersections = new double[(edgeCount + 2) * Geometry.STRIDE];
+        edges = new int[edgeCount];
+        marks = new int[edgeCount];
+        sides = new double[edgeCount];
+    }
+
+    /**
+     * Adds to a counter if statistics are enabled
+     *
+     * @param counter The counter, see {@link CalculatorStats}
+     * @param amount  The amount to add
+     */
+    void count(final int counter, final long amount) {
+        if (counts != null)
+            counts[counter] += amount;
+    }
+
+    /**
+     * Starts a new edge index query
+     *
+     * @return The mark used to flag edges collected by the query
+     */
+    int nextQuery() {
+        if (++query == 0) {
+            // the counter wrapped so old marks could collide with new ones
+            Arrays.fill(marks, 0);
+            query = 1;
+        }
+        return query;
+    }
+}
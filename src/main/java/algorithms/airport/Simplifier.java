@@ -0,0 +1,332 @@
+package algorithms.airport;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Simplifies the coast of an island with Douglas-Peucker. <br>
+ * A run of vertices is replaced by the line between its ends when every vertex of the run
+ * is within the tolerance of that line. The outer simplification only makes replacements
+ * that keep the whole island inside the simplified one: runs that bend into the island are
+ * closed off along lines that lie outside it, and runs that bend out of the island are
+ * replaced by the two lines that continue their first and last edges to the point where
+ * they meet. No runway of the island can be longer than the longest line inside its outer
+ * simplification. The side and orientation tests that decide those replacements are exact,
+ * see {@link Geometry#orientation}, and a pocket whose area is too small to tell from
+ * rounding is never closed off.
+ */
+final class Simplifier {
+
+    private Simplifier() {
+    }
+
+    /**
+     * Simplifies an island with plain Douglas-Peucker. The simplified coast is within the
+     * tolerance of the original, but may cut into the island or stray out of it.
+     *
+     * @param poly      The island
+     * @param tolerance The farthest a removed vertex may be from the line that replaces it
+     * @return The simplified island
+     */
+    static Island simplify(final Island poly, final double tolerance) {
+        return simplify(poly, tolerance, false, false);
+    }
+
+    /**
+     * Simplifies an island so the simplified island contains the original
+     *
+     * @param poly      The island
+     * @param tolerance The farthest a removed vertex may be from the line that replaces it,
+     *                  and the farthest a new vertex may be from the run it replaces
+     * @return The simplified island, containing the original
+     */
+    static Island outer(final Island poly, final double tolerance) {
+        final Island simplified = simplify(poly, tolerance, true, true);
+        if (simplified == poly || isSimple(simplified))
+            return simplified;
+
+        // new vertices from neighbouring runs can overlap where two coasts come close,
+        // closing runs off with lines between vertices never can
+        return simplify(poly, tolerance, true, false);
+    }
+
+    private static Island simplify(final Island poly, final double tolerance, final boolean outer,
+                                   final boolean newVertices) {
+        final int n = poly.npoints;
+        final double[] x = poly.xpoints;
+        final double[] y = poly.ypoints;
+        final Scratch scratch = poly.createScratch();
+
+        final int orientation = orientation(poly);
+
+        // split the ring at the vertex farthest from the first one, index n is vertex 0 again
+        int far = 0;
+        for (int i = 1; i < n; i++) {
+            if (Geometry.distanceSq(x[0], y[0], x[i], y[i]) > Geometry.distanceSq(x[0], y[0], x[far], y[far]))
+                far = i;
+        }
+        if (far == 0 || orientation == 0)
+            return poly;
+
+        final boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[far] = true;
+
+        // the vertex added after a kept vertex when the run that follows it bends out of the island
+        final boolean[] added = new boolean[n];
+        final double[] addedX = newVertices ? new double[n] : null;
+        final double[] addedY = newVertices ? new double[n] : null;
+        final double[] corner = new double[2];
+
+        final Deque<int[]> runs = new ArrayDeque<>();
+        runs.push(new int[]{0, far});
+        runs.push(new int[]{far, n});
+
+        while (!runs.isEmpty()) {
+            final int[] run = runs.pop();
+            final int from = run[0];
+            final int to = run[1];
+            if (to - from < 2)
+                continue;
+
+            final int a = from;
+            final int b = to == n ? 0 : to;
+
+            // the island lies to the left of the line for a counter clockwise coast,
+            // vertices on the other side stop the run from being closed off along the line
+            int farthest = from + 1;
+            double distance = -1;
+            int outside = -1;
+            double depth = 0;
+            boolean straight = x[a] != x[b] || y[a] != y[b];
+            for (int k = from + 1; k < to; k++) {
+                final double d = segmentDistance(x[a], y[a], x[b], y[b], x[k], y[k]);
+                if (d > distance) {
+                    distance = d;
+                    farthest = k;
+                }
+
+                // the side is exact, only the depth that picks the deepest vertex is rounded
+                final int side = -orientation * Geometry.orientation(x[a], y[a], x[b], y[b], x[k], y[k]);
+                if (side != 0)
+                    straight = false;
+                if (side > 0) {
+                    final double w = Math.abs((x[b] - x[a]) * (y[k] - y[a]) - (y[b] - y[a]) * (x[k] - x[a]));
+                    if (outside < 0 || w > depth) {
+                        depth = w;
+                        outside = k;
+                    }
+                }
+            }
+
+            int split = farthest;
+            if (distance <= tolerance) {
+                if (!outer)
+                    continue;
+                if (outside < 0 && canCloseOff(poly, from, to, straight, orientation, scratch))
+                    continue;
+                if (outside >= 0 && newVertices
+                        && findCorner(poly, from, to, tolerance, orientation, corner, scratch)) {
+                    added[a] = true;
+                    addedX[a] = corner[0];
+                    addedY[a] = corner[1];
+                    continue;
+                }
+                // split where the run leaves the line, so the runs either side can still be closed off
+                if (outside >= 0)
+                    split = outside;
+            }
+
+            keep[split] = true;
+            runs.push(new int[]{from, split});
+            runs.push(new int[]{split, to});
+        }
+
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i])
+                count += added[i] ? 2 : 1;
+        }
+
+        // an island too thin to keep three vertices is left as it is
+        if (count == n || count < 3)
+            return poly;
+
+        final double[] sx = new double[count];
+        final double[] sy = new double[count];
+        for (int i = 0, m = 0; i < n; i++) {
+            if (keep[i]) {
+                sx[m] = x[i];
+                sy[m] = y[i];
+                m++;
+                if (added[i]) {
+                    sx[m] = addedX[i];
+                    sy[m] = addedY[i];
+                    m++;
+                }
+            }
+        }
+
+        final Island simplified = new Island(sx, sy, count);
+        if (poly.hasEdgeIndex())
+            simplified.prepareForQueries();
+        return simplified;
+    }
+
+    /**
+     * Finds the orientation of an island's coast exactly from the turn at its lowest left
+     * vertex, where the coast is always convex
+     *
+     * @return 1 if the coast is counter clockwise, -1 if it is clockwise or 0 if it folds back on itself there
+     */
+    private static int orientation(final Island poly) {
+        final double[] x = poly.xpoints;
+        final double[] y = poly.ypoints;
+        final int n = poly.npoints;
+
+        int lowest = 0;
+        for (int i = 1; i < n; i++) {
+            if (x[i] < x[lowest] || x[i] == x[lowest] && y[i] < y[lowest])
+                lowest = i;
+        }
+
+        // skip repeated vertices either side
+        int prev = lowest;
+        int next = lowest;
+        for (int k = 1; k < n && x[prev] == x[lowest] && y[prev] == y[lowest]; k++)
+            prev = Math.floorMod(lowest - k, n);
+        for (int k = 1; k < n && x[next] == x[lowest] && y[next] == y[lowest]; k++)
+            next = (lowest + k) % n;
+
+        return Geometry.orientation(x[prev], y[prev], x[lowest], y[lowest], x[next], y[next]);
+    }
+
+    /**
+     * Checks if a run that bends into the island can be closed off by the line between its
+     * ends, which must lie outside the island
+     *
+     * @param straight True if every vertex of the run lies exactly on the line
+     */
+    private static boolean canCloseOff(final Island poly, final int from, final int to, final boolean straight,
+                                       final int orientation, final Scratch scratch) {
+        final double[] x = poly.xpoints;
+        final double[] y = poly.ypoints;
+        final int n = poly.npoints;
+        final int a = from;
+        final int b = to == n ? 0 : to;
+
+        // the area between the run and the line must be outside the island, summed as triangles
+        // from the first vertex so the terms stay small, and only trusted once it is clear of
+        // the rounding error of every difference, product and sum
+        if (!straight) {
+            double pocket = 0;
+            double magnitude = 0;
+            for (int k = from + 1; k < to; k++) {
+                final int j = k + 1 == to ? b : k + 1;
+                final double left = (x[k] - x[a]) * (y[j] - y[a]);
+                final double right = (y[k] - y[a]) * (x[j] - x[a]);
+                pocket += left - right;
+                magnitude += Math.abs(left) + Math.abs(right);
+            }
+
+            if (pocket * orientation >= -(to - from + 4) * Math.ulp(1.0) * magnitude)
+                return false;
+        }
+
+        // the run itself is on the island's side of the line, every other edge must stay clear of it
+        if (poly.touchesEdges(x[a], y[a], x[b], y[b], Math.floorMod(a - 1, n), b, scratch))
+            return false;
+
+        return !poly.contains((x[a] + x[b]) / 2, (y[a] + y[b]) / 2, scratch);
+    }
+
+    /**
+     * Finds the point where the lines through the first and the last edge of a run that bends
+     * out of the island meet, so the run can be replaced by two lines through that point
+     *
+     * @param corner The buffer the point is written to
+     * @return True if the two lines enclose the whole run and stay clear of the rest of the coast
+     */
+    private static boolean findCorner(final Island poly, final int from, final int to, final double tolerance,
+                                      final int orientation, final double[] corner, final Scratch scratch) {
+        if (to - from < 3)
+            return false;
+
+        final double[] x = poly.xpoints;
+        final double[] y = poly.ypoints;
+        final int n = poly.npoints;
+        final int a = from;
+        final int b = to == n ? 0 : to;
+
+        // the first edge continued forwards and the last edge continued backwards
+        final double ux = x[a + 1] - x[a];
+        final double uy = y[a + 1] - y[a];
+        final double vx = x[to - 1] - x[b];
+        final double vy = y[to - 1] - y[b];
+
+        final double det = ux * vy - uy * vx;
+        if (det == 0)
+            return false;
+
+        final double s = ((x[b] - x[a]) * vy - (y[b] - y[a]) * vx) / det;
+        final double t = ((x[b] - x[a]) * uy - (y[b] - y[a]) * ux) / det;
+        if (!(s >= 1) || !(t >= 1))
+            return false;
+
+        final double cx = x[a] + s * ux;
+        final double cy = y[a] + s * uy;
+        if (segmentDistance(x[a], y[a], x[b], y[b], cx, cy) > tolerance)
+            return false;
+
+        // every vertex of the run must be on the island's side of both lines through the rounded corner
+        for (int k = from + 1; k < to; k++) {
+            if (orientation * Geometry.orientation(x[a], y[a], cx, cy, x[k], y[k]) < 0)
+                return false;
+            if (orientation * Geometry.orientation(cx, cy, x[b], y[b], x[k], y[k]) < 0)
+                return false;
+        }
+
+        // the run is inside both lines, every other edge must stay clear of them
+        if (poly.touchesEdges(x[a], y[a], cx, cy, Math.floorMod(a - 1, n), to - 1, scratch)
+                || poly.touchesEdges(cx, cy, x[b], y[b], a, b, scratch))
+            return false;
+
+        corner[0] = cx;
+        corner[1] = cy;
+        return true;
+    }
+
+    /**
+     * Checks that no two edges of an island touch, other than neighbouring edges at their shared vertex
+     */
+    private static boolean isSimple(final Island poly) {
+        final int n = poly.npoints;
+        poly.prepareForQueries();
+
+        final Scratch scratch = poly.createScratch();
+
+        for (int i = 0; i < n; i++) {
+            final int j = i + 1 == n ? 0 : i + 1;
+            if (poly.touchesEdges(poly.xpoints[i], poly.ypoints[i], poly.xpoints[j], poly.ypoints[j],
+                    Math.floorMod(i - 1, n), j, scratch))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * The distance from a point to the line segment (ax, ay) to (bx, by)
+     */
+    static double segmentDistance(final double ax, final double ay, final double bx, final double by,
+                                  final double px, final double py) {
+        final double dx = bx - ax;
+        final double dy = by - ay;
+        final double lengthSq = dx * dx + dy * dy;
+
+        double t = lengthSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+
+        return Geometry.distance(ax + t * dx, ay + t * dy, px, py);
+    }
+}
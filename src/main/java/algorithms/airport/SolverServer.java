@@ -0,0 +1,367 @@
+package algorithms.airport;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Solves islands sent over a stream, so one JVM and its compiled code serve many requests. <br>
+ * Requests are read one line at a time and solved on a fixed pool of workers while the
+ * next requests are read, so a client can send many requests without waiting for answers.
+ * Each response is one JSON line, written as soon as its island is solved and tagged with
+ * the id of its request, so responses may come back in a different order.
+ * <br>
+ * <br>
+ * There are four requests:
+ * <ul>
+ * <li>solve id n, followed by n lines each holding the x and y value of a vertex</li>
+ * <li>file id path, solves a polygon file the server can read, see {@link PolygonLoader}</li>
+ * <li>stats, the number of requests answered and the 50th and 99th percentile latency</li>
+ * <li>quit, ends the stream once every earlier request is answered</li>
+ * </ul>
+ * Latency is measured from when a request has been read until its response is ready,
+ * so it includes the time spent waiting for a worker.
+ */
+public class SolverServer implements Closeable {
+
+    /**
+     * The most requests from one stream that can be solving or waiting for a worker, per worker
+     */
+    private static final int PENDING_PER_WORKER = 4;
+
+    /**
+     * The number of vertices of the island solved to warm the server up
+     */
+    private static final int WARM_UP_VERTICES = 256;
+
+    private final int workers;
+    private final ExecutorService pool;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private CandidateGenerator candidateGenerator = new BruteForceGenerator();
+    private boolean pruning;
+    private boolean statsEnabled;
+    private RunwayCache cache;
+
+    /**
+     * Constructs a server and starts its workers
+     *
+     * @param workers The number of islands solved at the same time
+     */
+    public SolverServer(final int workers) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Workers must be at least 1.");
+
+        this.workers = workers;
+        this.pool = Executors.newFixedThreadPool(workers, r -> {
+            final Thread thread = new Thread(r, "solver-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the generator used by every calculation
+     *
+     * @param candidateGenerator The candidate generator
+     */
+    public void setCandidateGenerator(final CandidateGenerator candidateGenerator) {
+        if (candidateGenerator == null)
+            throw new IllegalArgumentException("Candidate generator must not be null.");
+        this.candidateGenerator = candidateGenerator;
+    }
+
+    /**
+     * Enables branch and bound pruning for every calculation, see {@link AirportCalculator#setPruning(boolean)}
+     */
+    public void setPruning(final boolean pruning) {
+        this.pruning = pruning;
+    }
+
+    /**
+     * Enables statistics for every calculation, see {@link AirportCalculator#setStatsEnabled(boolean)}.
+     * The warm up rounds are never counted.
+     */
+    public void setStatsEnabled(final boolean statsEnabled) {
+        this.statsEnabled = statsEnabled;
+    }
+
+    /**
+     * Sets a cache that islands are looked up in before they are solved. No cache is used
+     * when it is NULL, which is the default.
+     *
+     * @param cache The cache
+     */
+    public void setCache(final RunwayCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Solves a generated island several times, so the calculator is compiled before the
+     * first request arrives. The warm up is not counted in the latencies.
+     *
+     * @param rounds The number of times to solve the island
+     */
+    public void warmUp(final int rounds) {
+        final Random random = new Random(1);
+        final double[] x = new double[WARM_UP_VERTICES];
+        final double[] y = new double[WARM_UP_VERTICES];
+
+        // a star with random spikes, which has both valid and invalid pairs
+        for (int i = 0; i < WARM_UP_VERTICES; i++) {
+            final double angle = 2 * Math.PI * i / WARM_UP_VERTICES;
+            final double radius = 50 + 50 * random.nextDouble();
+            x[i] = radius * Math.cos(angle);
+            y[i] = radius * Math.sin(angle);
+        }
+
+        for (int i = 0; i < rounds; i++) {
+            final Island island = new Island(x, y, WARM_UP_VERTICES);
+            island.prepareForQueries();
+            final AirportCalculator calculator = calculator(island);
+            calculator.setStatsEnabled(false);
+            calculator.calculate();
+        }
+    }
+
+    /**
+     * The number of requests answered, including requests that failed
+     */
+    public long getRequestCount() {
+        return latency.count();
+    }
+
+    /**
+     * The latency that the given fraction of requests were answered within
+     *
+     * @param fraction The fraction, 0.99 for the 99th percentile
+     * @return The latency in milliseconds, at most a sixteenth above the true value
+     */
+    public double getLatencyMillis(final double fraction) {
+        return latency.percentileMillis(fraction);
+    }
+
+    /**
+     * Serves requests from a stream until it ends or sends quit, then waits for every
+     * response to be written. The output is flushed after each response but not closed.
+     *
+     * @param in  The requests
+     * @param out The responses
+     * @throws IOException If the requests cannot be read
+     */
+    public void serve(final InputStream in, final OutputStream out) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        final int permits = workers * PENDING_PER_WORKER;
+        final Semaphore pending = new Semaphore(permits);
+
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] words = line.trim().split("\\s+", 3);
+                final long received = System.nanoTime();
+
+                if (words[0].isEmpty()) {
+                    continue;
+                } else if (words[0].equals("quit")) {
+                    break;
+                } else if (words[0].equals("stats")) {
+                    respond(writer, "{\"requests\":" + getRequestCount() + ",\"p50\":" + millis(getLatencyMillis(0.5))
+                            + ",\"p99\":" + millis(getLatencyMillis(0.99)) + '}');
+                } else if (words[0].equals("solve") && words.length == 3) {
+                    final Callable<Island> island = readVertices(reader, words[2]);
+                    submit(words[1], island, System.nanoTime(), writer, pending);
+                } else if (words[0].equals("file") && words.length == 3) {
+                    final String file = words[2];
+                    submit(words[1], () -> PolygonLoader.load(Paths.get(file)), received, writer, pending);
+                } else {
+                    respond(writer, "{\"error\":" + BatchRunner.jsonString("Unknown request " + line.trim() + ".") + '}');
+                    latency.record(System.nanoTime() - received);
+                }
+            }
+        } finally {
+            // every permit is back once the last response has been written
+            pending.acquireUninterruptibly(permits);
+            pending.release(permits);
+        }
+    }
+
+    /**
+     * Accepts connections on a port of the loopback address and serves each one on its
+     * own thread, see {@link #serve}. Returns only if the server socket fails.
+     *
+     * @param port The port
+     * @throws IOException If the port cannot be opened
+     */
+    public void listen(final int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            while (true) {
+                final Socket socket = server.accept();
+                final Thread thread = new Thread(() -> {
+                    try (Socket s = socket) {
+                        serve(s.getInputStream(), s.getOutputStream());
+                    } catch (IOException e) {
+                        // the client went away, its requests are simply dropped
+                    }
+                }, "solver-connection");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    /**
+     * Stops the workers, requests that are still waiting are dropped
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Reads the vertex lines of a solve request. Every line is read even if one is invalid,
+     * so the stream stays in step with the requests.
+     *
+     * @param count The number of vertices, as sent
+     * @return Builds the island, or throws the reason the vertices are invalid
+     */
+    private static Callable<Island> readVertices(final BufferedReader reader, final String count) throws IOException {
+        final int n;
+        try {
+            n = Integer.parseInt(count);
+        } catch (NumberFormatException e) {
+            return () -> {
+                throw new IllegalArgumentException("Invalid vertex count " + count + ".");
+            };
+        }
+
+        double[] x = new double[Math.max(0, Math.min(n, 1 << 16))];
+        double[] y = new double[x.length];
+        String error = n < 0 ? "Invalid vertex count " + count + "." : null;
+
+        for (int i = 0; i < n; i++) {
+            final String line = reader.readLine();
+            if (line == null)
+                throw new EOFException("The stream ended inside a solve request.");
+            if (error != null)
+                continue;
+
+            if (i == x.length) {
+                x = Arrays.copyOf(x, 2 * x.length);
+                y = Arrays.copyOf(y, x.length);
+            }
+
+            final String[] values = line.trim().split("\\s+");
+            try {
+                if (values.length != 2)
+                    throw new NumberFormatException();
+                x[i] = Double.parseDouble(values[0]);
+                y[i] = Double.parseDouble(values[1]);
+            } catch (NumberFormatException e) {
+                error = "Invalid vertex " + line.trim() + ".";
+            }
+        }
+
+        final String reason = error;
+        final double[] xpoints = x;
+        final double[] ypoints = y;
+        return () -> {
+            if (reason != null)
+                throw new IllegalArgumentException(reason);
+            return new Island(xpoints, ypoints, n);
+        };
+    }
+
+    /**
+     * Solves a request on a worker, waiting first if too many requests from the stream are in flight
+     */
+    private void submit(final String id, final Callable<Island> island, final long received, final Writer writer,
+                        final Semaphore pending) {
+        pending.acquireUninterruptibly();
+        try {
+            pool.execute(() -> {
+                try {
+                    respond(writer, solve(id, island, received));
+                } catch (IOException e) {
+                    // the client went away, there is nobody to answer
+                } finally {
+                    latency.record(System.nanoTime() - received);
+                    pending.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.release();
+            throw e;
+        }
+    }
+
+    private String solve(final String id, final Callable<Island> source, final long received) {
+        final Island island;
+        try {
+            island = source.call();
+        } catch (IOException e) {
+            return error(id, "Failed to read file. " + e.getMessage());
+        } catch (Exception e) {
+            return error(id, "Invalid island. " + e.getMessage());
+        }
+        if (island == null)
+            return error(id, "Invalid file format.");
+
+        final long startTime = System.nanoTime();
+        final Runway runway;
+        try {
+            island.prepareForQueries();
+            final AirportCalculator calculator = calculator(island);
+            runway = cache == null ? calculator.calculate() : cache.calculate(calculator);
+        } catch (RuntimeException e) {
+            return error(id, "Failed to solve. " + e);
+        }
+        final long endTime = System.nanoTime();
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\"id\":").append(BatchRunner.jsonString(id)).append(",\"vertices\":").append(island.size());
+        if (runway != null) {
+            sb.append(",\"length\":").append(runway.getLength())
+                    .append(",\"start\":[").append(runway.getX1()).append(',').append(runway.getY1()).append(']')
+                    .append(",\"end\":[").append(runway.getX2()).append(',').append(runway.getY2()).append(']');
+        } else {
+            sb.append(",\"error\":\"No two vertices can form a valid runway.\"");
+        }
+        sb.append(",\"solveMillis\":").append(millis((endTime - startTime) / 1000000.0))
+                .append(",\"millis\":").append(millis((endTime - received) / 1000000.0));
+        return sb.append('}').toString();
+    }
+
+    private AirportCalculator calculator(final Island island) {
+        final AirportCalculator calculator = new AirportCalculator(island);
+        calculator.setCandidateGenerator(candidateGenerator);
+        calculator.setPruning(pruning);
+        calculator.setStatsEnabled(statsEnabled);
+        return calculator;
+    }
+
+    private static void respond(final Writer writer, final String response) throws IOException {
+        synchronized (writer) {
+            writer.write(response);
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    private static String error(final String id, final String message) {
+        return "{\"id\":" + BatchRunner.jsonString(id) + ",\"error\":" + BatchRunner.jsonString(message) + '}';
+    }
+
+    private static String millis(final double millis) {
+        return String.format(Locale.ROOT, "%.3f", millis);
+    }
+}
@@ -0,0 +1,148 @@
+package algorithms.airport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collects the k longest distinct runways in a bounded min heap. <br>
+ * Runways are ranked by length and then by the order of the vertex pair they were found
+ * from, later pairs first, matching the tie rule of the serial search. Because the rank
+ * never depends on the order runways are offered in, collectors filled by different
+ * workers can be merged into the same result the serial search would find.
+ * Two runways are the same when both their end points are within the tolerance of each
+ * other, only the higher ranked of the two is kept.
+ */
+final class TopRunways {
+
+    /**
+     * Orders runways from lowest to highest rank
+     */
+    private static final Comparator<Ranked> RANK = (p, q) -> {
+        final int result = Double.compare(p.runway.getLength(), q.runway.getLength());
+        return result != 0 ? result : Long.compare(p.sequence, q.sequence);
+    };
+
+    private final int k;
+    private final double tolerance;
+    private final PriorityQueue<Ranked> heap;
+
+    /**
+     * @param k         The number of runways to keep
+     * @param tolerance The distance within which two end points are the same
+     */
+    TopRunways(final int k, final double tolerance) {
+        this.k = k;
+        this.tolerance = tolerance;
+        this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, RANK);
+    }
+
+    /**
+     * The length a runway must reach to be kept, or 0 until k runways have been collected
+     */
+    double threshold() {
+        return heap.size() < k ? 0 : heap.peek().runway.getLength();
+    }
+
+    /**
+     * Checks if a runway of the given length from the given pair could be kept,
+     * so callers can skip building runways that would be rejected
+     */
+    boolean accepts(final double length, final long sequence) {
+        if (heap.size() < k)
+            return true;
+
+        final Ranked lowest = heap.peek();
+        final int result = Double.compare(length, lowest.runway.getLength());
+        return result > 0 || result == 0 && sequence > lowest.sequence;
+    }
+
+    /**
+     * Offers a runway
+     *
+     * @param runway   The runway
+     * @param sequence The order of the vertex pair the runway was found from
+     */
+    void offer(final Runway runway, final long sequence) {
+        offer(new Ranked(runway, sequence));
+    }
+
+    private void offer(final Ranked ranked) {
+        if (!accepts(ranked.runway.getLength(), ranked.sequence))
+            return;
+
+        for (final Ranked kept : heap) {
+            if (same(kept.runway, ranked.runway, tolerance)) {
+                if (RANK.compare(ranked, kept) <= 0)
+                    return;
+                heap.remove(kept);
+                break;
+            }
+        }
+
+        heap.add(ranked);
+        if (heap.size() > k)
+            heap.poll();
+    }
+
+    /**
+     * Offers every runway collected by another collector
+     */
+    void addAll(final TopRunways other) {
+        for (final Ranked ranked : other.heap)
+            offer(ranked);
+    }
+
+    /**
+     * The collected runways from highest to lowest rank
+     */
+    List<Runway> toList() {
+        final List<Ranked> ranked = new ArrayList<>(heap);
+        ranked.sort(Collections.reverseOrder(RANK));
+
+        final List<Runway> runways = new ArrayList<>(ranked.size());
+        for (final Ranked r : ranked)
+            runways.add(r.runway);
+        return runways;
+    }
+
+    /**
+     * The order of the vertex pair the highest ranked runway was found from, or -1 if none were collected
+     */
+    long firstSequence() {
+        Ranked first = null;
+        for (final Ranked ranked : heap) {
+            if (first == null || RANK.compare(ranked, first) > 0)
+                first = ranked;
+        }
+        return first == null ? -1 : first.sequence;
+    }
+
+    /**
+     * Checks if two runways have the same end points, in either direction
+     */
+    static boolean same(final Runway a, final Runway b, final double tolerance) {
+        return near(a.getX1(), a.getY1(), b.getX1(), b.getY1(), tolerance)
+                && near(a.getX2(), a.getY2(), b.getX2(), b.getY2(), tolerance)
+                || near(a.getX1(), a.getY1(), b.getX2(), b.getY2(), tolerance)
+                && near(a.getX2(), a.getY2(), b.getX1(), b.getY1(), tolerance);
+    }
+
+    private static boolean near(final double x1, final double y1, final double x2, final double y2,
+                                final double tolerance) {
+        return Math.abs(x1 - x2) <= tolerance && Math.abs(y1 - y2) <= tolerance;
+    }
+
+    private static class Ranked {
+
+        private final Runway runway;
+        private final long sequence;
+
+        Ranked(final Runway runway, final long sequence) {
+            this.runway = runway;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package algorithms.airport;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * Generates the pairs of mutually visible vertices with a rotational sweep. <br>
+ * For each vertex p the other vertices are visited in angular order around p while a
+ * tree holds the edges crossed by the sweep ray, ordered by distance from p. A vertex is
+ * visible when the nearest edge on the ray lies beyond it and the ray leaves p and arrives
+ * at the vertex through the interior of the island. Each row costs O(n log n), so the
+ * whole graph costs O(n^2 log n).
+ * <br>
+ * <br>
+ * Pairs that are clearly hidden are dropped and pairs that are clearly visible are marked
+ * as verified. Degenerate pairs, such as a ray passing through other vertices or running
+ * along an edge, are returned unverified so {@link Island#containsLine} has the final say
+ * and the result always matches {@link BruteForceGenerator}.
+ */
+public class VisibilityGraphGenerator implements CandidateGenerator {
+
+    private static final byte HIDDEN = 0;
+    private static final byte VISIBLE = 1;
+    private static final byte UNCERTAIN = 2;
+
+    @Override
+    public int candidates(final Island island, final int a, final int[] vertices, final boolean[] verified) {
+        final byte[] visibility = sweep(island, a);
+
+        int count = 0;
+        for (int b = a + 1; b < island.npoints; b++) {
+            if (visibility[b] != HIDDEN) {
+                vertices[count] = b;
+                verified[count] = visibility[b] == VISIBLE;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Classifies every vertex by whether it can be seen from vertex p
+     */
+    private static byte[] sweep(final Island island, final int p) {
+        final int n = island.npoints;
+        final double[] x = island.xpoints;
+        final double[] y = island.ypoints;
+
+        final byte[] visibility = new byte[n];
+        final double orientation = Math.signum(signedArea(x, y));
+
+        // the sweep follows a single ring, lakes leave every pair to containsLine
+        if (island.getLakeCount() > 0 || orientation == 0 || isDegenerate(x, y, p)) {
+            Arrays.fill(visibility, UNCERTAIN);
+            return visibility;
+        }
+
+        final double px = x[p];
+        final double py = y[p];
+
+        // sort the other vertices by angle around p, nearest first when the angles are equal
+        final Integer[] order = new Integer[n - 1];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == p)
+                continue;
+            if (x[i] == px && y[i] == py) {
+                visibility[i] = UNCERTAIN;
+                continue;
+            }
+            order[count++] = i;
+        }
+
+        final Comparator<Integer> byAngle = (i, j) -> compareAngle(px, py, x[i], y[i], x[j], y[j]);
+        Arrays.sort(order, 0, count, byAngle.thenComparingDouble(i -> Geometry.distanceSq(px, py, x[i], y[i])));
+
+        // the edges crossed by the sweep ray, nearest first
+        final TreeSet<Integer> status = new TreeSet<>((e, f) -> compareEdges(x, y, px, py, e, f));
+
+        // start with the edges that cross the ray at angle zero
+        for (int e = 0; e < n; e++) {
+            final int start = edgeStart(x, y, px, py, e);
+            if (start >= 0 && compareAngle(px, py, x[edgeEnd(n, e, start)], y[edgeEnd(n, e, start)], x[start], y[start]) < 0)
+                status.add(e);
+        }
+
+        int group = 0;
+        while (group < count) {
+            // vertices in the same direction from p are handled together
+            int groupEnd = group + 1;
+            while (groupEnd < count && byAngle.compare(order[group], order[groupEnd]) == 0)
+                groupEnd++;
+
+            for (int k = group; k < groupEnd; k++) {
+                final int q = order[k];
+                removeEndingEdges(x, y, px, py, q, status);
+            }
+
+            final int nearest = order[group];
+            final byte result = classify(x, y, orientation, p, nearest, status.isEmpty() ? -1 : status.first());
+            visibility[nearest] = mergeVisibility(visibility[nearest], result);
+
+            // farther vertices on the same ray touch the nearest one, leave those to containsLine
+            // unless the ray is already known to be blocked
+            for (int k = group + 1; k < groupEnd; k++)
+                visibility[order[k]] = mergeVisibility(visibility[order[k]], result == HIDDEN ? HIDDEN : UNCERTAIN);
+
+            for (int k = group; k < groupEnd; k++) {
+                final int q = order[k];
+                addStartingEdges(x, y, px, py, q, status);
+            }
+
+            group = groupEnd;
+        }
+
+        // neighbouring vertices always form a valid runway
+        visibility[p == 0 ? n - 1 : p - 1] = VISIBLE;
+        visibility[p + 1 == n ? 0 : p + 1] = VISIBLE;
+        visibility[p] = HIDDEN;
+
+        return visibility;
+    }
+
+    /**
+     * Combines the classification of a vertex that was already marked uncertain
+     */
+    private static byte mergeVisibility(final byte previous, final byte result) {
+        return previous == UNCERTAIN ? UNCERTAIN : result;
+    }
+
+    /**
+     * Classifies the vertex q as seen from p
+     *
+     * @param nearest The edge nearest to p that the ray to q crosses or -1 if there are none
+     */
+    private static byte classify(final double[] x, final double[] y, final double orientation,
+                                 final int p, final int q, final int nearest) {
+        if (isDegenerate(x, y, q))
+            return UNCERTAIN;
+
+        final int leavesP = cone(x, y, orientation, p, q);
+        final int arrivesQ = cone(x, y, orientation, q, p);
+
+        if (leavesP < 0 || arrivesQ < 0)
+            return HIDDEN;
+
+        if (nearest >= 0) {
+            final int n = x.length;
+            final int i = nearest;
+            final int j = i + 1 == n ? 0 : i + 1;
+
+            final double sideP = cross(x[i], y[i], x[j], y[j], x[p], y[p]);
+            final double sideQ = cross(x[i], y[i], x[j], y[j], x[q], y[q]);
+
+            if (sideP * sideQ < 0) {
+                // the edge crosses the ray before q, unless it only grazes the segment
+                if (Geometry.isPointOnLine(x[p], y[p], x[q], y[q], x[i], y[i])
+                        || Geometry.isPointOnLine(x[p], y[p], x[q], y[q], x[j], y[j]))
+                    return UNCERTAIN;
+                return HIDDEN;
+            }
+            if (sideQ == 0)
+                return UNCERTAIN;
+        }
+
+        return leavesP > 0 && arrivesQ > 0 ? VISIBLE : UNCERTAIN;
+    }
+
+    /**
+     * Tests whether the direction from vertex v towards vertex t points into the interior of the island
+     *
+     * @return 1 if the direction is strictly inside the interior angle at v, -1 if it is
+     * strictly outside or 0 if it runs along one of the edges at v
+     */
+    private static int cone(final double[] x, final double[] y, final double orientation,
+                            final int v, final int t) {
+        final int n = x.length;
+        final int u = v == 0 ? n - 1 : v - 1;
+        final int w = v + 1 == n ? 0 : v + 1;
+
+        // for a counter clockwise island the interior is left of the outgoing edge
+        // and right of the reversed incoming edge
+        final double turn = orientation * cross(x[u], y[u], x[v], y[v], x[w], y[w]);
+        final double outgoing = orientation * Geometry.crossSign(x[v], y[v], x[w], y[w], x[v], y[v], x[t], y[t]);
+        final double incoming = orientation * Geometry.crossSign(x[v], y[v], x[u], y[u], x[v], y[v], x[t], y[t]);
+
+        if (outgoing == 0 || incoming == 0)
+            return 0;
+
+        if (turn > 0)
+            return outgoing > 0 && incoming < 0 ? 1 : -1;
+        if (turn < 0)
+            return outgoing > 0 || incoming < 0 ? 1 : -1;
+
+        // a straight vertex, the interior is a half plane
+        return outgoing > 0 ? 1 : -1;
+    }
+
+    /**
+     * Removes the edges at vertex q whose angular range ends at q
+     */
+    private static void removeEndingEdges(final double[] x, final double[] y, final double px, final double py,
+                                          final int q, final TreeSet<Integer> status) {
+        final int n = x.length;
+        final int before = q == 0 ? n - 1 : q - 1;
+
+        if (edgeStart(x, y, px, py, before) == before)
+            status.remove(before);
+        if (edgeStart(x, y, px, py, q) == (q + 1 == n ? 0 : q + 1))
+            status.remove(q);
+    }
+
+    /**
+     * Adds the edges at vertex q whose angular range starts at q
+     */
+    private static void addStartingEdges(final double[] x, final double[] y, final double px, final double py,
+                                         final int q, final TreeSet<Integer> status) {
+        final int n = x.length;
+        final int before = q == 0 ? n - 1 : q - 1;
+
+        if (edgeStart(x, y, px, py, before) == q)
+            status.add(before);
+        if (edgeStart(x, y, px, py, q) == q)
+            status.add(q);
+    }
+
+    /**
+     * Finds the end point of edge e where the sweep first reaches it
+     *
+     * @return The vertex index or -1 if the edge lies on a line through p and is never crossed by the ray
+     */
+    private static int edgeStart(final double[] x, final double[] y, final double px, final double py, final int e) {
+        final int f = e + 1 == x.length ? 0 : e + 1;
+        final double turn = cross(px, py, x[e], y[e], x[f], y[f]);
+
+        if (turn > 0)
+            return e;
+        if (turn < 0)
+            return f;
+        return -1;
+    }
+
+    /**
+     * The end point of edge e that is not the given start
+     */
+    private static int edgeEnd(final int n, final int e, final int start) {
+        return start == e ? (e + 1 == n ? 0 : e + 1) : e;
+    }
+
+    /**
+     * Orders two edges crossed by the same ray from p by their distance from p <br>
+     * Two edges that do not cross have at least one edge entirely on one side of the
+     * other's line. That edge is the nearer one if it is on the same side as p.
+     */
+    private static int compareEdges(final double[] x, final double[] y, final double px, final double py,
+                                    final int e, final int f) {
+        if (e == f)
+            return 0;
+
+        final int side = sideOf(x, y, f, e);
+        if (side != 0)
+            return side == Math.signum(lineSide(x, y, f, px, py)) ? -1 : 1;
+
+        final int reverse = sideOf(x, y, e, f);
+        if (reverse != 0)
+            return reverse == Math.signum(lineSide(x, y, e, px, py)) ? 1 : -1;
+
+        // collinear edges can not both cross the ray, keep the order consistent anyway
+        return Integer.compare(e, f);
+    }
+
+    /**
+     * Finds which side of the line through edge f that edge e lies on
+     *
+     * @return 1 or -1 for the side, or 0 if e straddles the line or lies on it
+     */
+    private static int sideOf(final double[] x, final double[] y, final int f, final int e) {
+        final int n = x.length;
+        final double s1 = Math.signum(lineSide(x, y, f, x[e], y[e]));
+        final double s2 = Math.signum(lineSide(x, y, f, x[e + 1 == n ? 0 : e + 1], y[e + 1 == n ? 0 : e + 1]));
+
+        if (s1 * s2 < 0 || s1 == 0 && s2 == 0)
+            return 0;
+        return (int) (s1 != 0 ? s1 : s2);
+    }
+
+    private static double lineSide(final double[] x, final double[] y, final int e, final double px, final double py) {
+        final int f = e + 1 == x.length ? 0 : e + 1;
+        return cross(x[e], y[e], x[f], y[f], px, py);
+    }
+
+    /**
+     * Orders two points by their angle around (px, py), counter clockwise from the positive x axis
+     */
+    private static int compareAngle(final double px, final double py, final double ax, final double ay,
+                                    final double bx, final double by) {
+        final int halfA = half(ax - px, ay - py);
+        final int halfB = half(bx - px, by - py);
+        if (halfA != halfB)
+            return halfA - halfB;
+
+        final double turn = cross(px, py, ax, ay, bx, by);
+        return turn > 0 ? -1 : (turn < 0 ? 1 : 0);
+    }
+
+    /**
+     * 0 for directions with an angle in [0, pi), 1 for directions in [pi, 2 pi)
+     */
+    private static int half(final double dx, final double dy) {
+        return dy > 0 || dy == 0 && dx > 0 ? 0 : 1;
+    }
+
+    /**
+     * The exact sign of the cross product of (b - a) and (c - a), positive when a, b, c turn counter clockwise
+     */
+    private static int cross(final double ax, final double ay, final double bx, final double by,
+                             final double cx, final double cy) {
+        return Geometry.orientation(ax, ay, bx, by, cx, cy);
+    }
+
+    /**
+     * Whether vertex v shares its position with one of its neighbours, which leaves its interior angle undefined
+     */
+    private static boolean isDegenerate(final double[] x, final double[] y, final int v) {
+        final int n = x.length;
+        final int u = v == 0 ? n - 1 : v - 1;
+        final int w = v + 1 == n ? 0 : v + 1;
+        return x[u] == x[v] && y[u] == y[v] || x[w] == x[v] && y[w] == y[v];
+    }
+
+    /**
+     * Twice the signed area of the polygon, positive when the vertices run counter clockwise
+     */
+    private static double signedArea(final double[] x, final double[] y) {
+        double area = 0;
+        for (int i = 0; i < x.length; i++) {
+            final int j = i + 1 == x.length ? 0 : i + 1;
+            area += x[i] * y[j] - x[j] * y[i];
+        }
+        return area;
+    }
+}
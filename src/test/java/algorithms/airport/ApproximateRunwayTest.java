@@ -0,0 +1,102 @@
+package algorithms.airport;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ApproximateRunwayTest {
+
+    private static final String[] FILES = {"data5", "data13", "data56", "data113", "data148", "data200", "data500"};
+
+    @Test
+    public void refinedRunwayStaysOnTheIsland() {
+        // the runway of the simplified island ends on a vertex the ray cast back from the
+        // original coast used to overshoot
+        final double[] x = {12.561507340030376, 22.482340596893934, 23.93843989534954, 52.39590428511259,
+                48.763554469804035, 34.24070320710671, 81.5177892410727, 68.23493814561498, 75.78466587610559,
+                99.03876084739231, 96.2905933167298, 16.53828865544582};
+        final double[] y = {96.70674167450997, 39.06877578827236, 12.235211797213452, 9.444765899871621,
+                17.064227082955018, 75.30275212381241, 23.245650528997007, 63.377817769025754, 59.935200585151215,
+                61.670690262017516, 83.10149580425565, 99.42210836094651};
+        final Island island = new Island(x, y, x.length);
+        final double exact = new AirportCalculator(island).calculate().getLength();
+
+        assertWithinBounds("repro", island, exact, 2);
+        assertEquals(exact, new AirportCalculator(island).calculateApproximate(2).getLength(), 1e-9);
+    }
+
+    @Test
+    public void straightCoastKeepsItsRunway() {
+        // a triangle whose longest side is split into short edges that bulge a little either way,
+        // so the line the simplified side runs along is blocked by the vertices it removed
+        final Random random = new Random(11);
+        for (int c = 0; c < 100; c++) {
+            final double[] x = new double[12];
+            final double[] y = new double[12];
+            x[1] = 50;
+            y[1] = -40;
+            x[2] = 100;
+            for (int i = 3; i < 12; i++) {
+                x[i] = 120 - 10 * i;
+                y[i] = (random.nextDouble() * 2 - 1) * Math.pow(10, -9 + 7 * random.nextDouble());
+            }
+            final Island island = new Island(x, y, x.length);
+            final double exact = new AirportCalculator(island).calculate().getLength();
+
+            for (final double tolerance : new double[]{1e-6, 1e-3}) {
+                final String name = "coast " + c + " at " + tolerance;
+                assertWithinBounds(name, island, exact, tolerance);
+                assertEquals(name, exact, new AirportCalculator(island).calculateApproximate(tolerance).getLength(),
+                        exact * 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void boundsHoldOnDataFiles() throws IOException {
+        for (final String name : FILES) {
+            final Island island = PolygonLoader.load(Paths.get("data", name + ".txt"));
+            final double exact = new AirportCalculator(island).calculate().getLength();
+            for (final double tolerance : new double[]{0.1, 1, 5})
+                assertWithinBounds(name + " at " + tolerance, island, exact, tolerance);
+        }
+    }
+
+    private static void assertWithinBounds(final String name, final Island island, final double exact,
+                                           final double tolerance) {
+        final ApproximateRunway approximate = new AirportCalculator(island).calculateApproximate(tolerance);
+        assertNotNull(name, approximate.getRunway());
+        assertTrue(name + ": " + approximate.getLength() + " > " + exact,
+                approximate.getLength() <= exact * (1 + 1e-12));
+        assertTrue(name + ": " + approximate.getUpperBound() + " < " + exact,
+                approximate.getUpperBound() >= exact);
+        assertInside(name, island, approximate.getRunway());
+    }
+
+    /**
+     * Checks points along a runway, those on the coast count as inside
+     */
+    private static void assertInside(final String name, final Island island, final Runway runway) {
+        final Scratch scratch = island.createScratch();
+        final int n = island.size();
+        for (int k = 1; k < 256; k++) {
+            final double t = k / 256.0;
+            final double px = runway.getX1() + t * (runway.getX2() - runway.getX1());
+            final double py = runway.getY1() + t * (runway.getY2() - runway.getY1());
+            if (island.contains(px, py, scratch))
+                continue;
+
+            double distance = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                final int j = (i + 1) % n;
+                distance = Math.min(distance, Simplifier.segmentDistance(island.getX(i), island.getY(i),
+                        island.getX(j), island.getY(j), px, py));
+            }
+            assertTrue(name + ": " + px + ", " + py + " is outside the island", distance <= 1e-9);
+        }
+    }
+}
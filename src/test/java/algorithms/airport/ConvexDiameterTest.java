@@ -0,0 +1,153 @@
+package algorithms.airport;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ConvexDiameterTest {
+
+    @Test
+    public void regularPolygonsMatchBruteForce() {
+        final Random random = new Random(3);
+        for (int n = 3; n <= 64; n++) {
+            final double scale = 1 + 1000 * random.nextDouble();
+            final double offset = 2 * Math.PI * random.nextDouble();
+            final Island island = regular(n, scale, offset, random.nextBoolean());
+
+            assertTrue("n = " + n, ConvexDiameter.isConvex(island));
+            assertEquals("n = " + n, bruteForce(island), ConvexDiameter.diameter(island));
+        }
+    }
+
+    @Test
+    public void diameterMatchesTheGeneralSearch() {
+        final Random random = new Random(4);
+        for (int c = 0; c < 50; c++) {
+            // random points on a circle, sorted by angle, are always convex
+            final int n = 3 + random.nextInt(40);
+            final double[] angles = new double[n];
+            for (int i = 0; i < n; i++)
+                angles[i] = 2 * Math.PI * random.nextDouble();
+            Arrays.sort(angles);
+
+            final double[] x = new double[n];
+            final double[] y = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = 100 * Math.cos(angles[i]);
+                y[i] = 60 * Math.sin(angles[i]);
+            }
+            final Island island = new Island(x, y, n);
+            if (!ConvexDiameter.isConvex(island))
+                continue;
+
+            assertEquals("case " + c, bruteForce(island), ConvexDiameter.diameter(island));
+            assertSameLength("case " + c, island);
+        }
+    }
+
+    @Test
+    public void collinearVerticesAreLeftToTheGeneralSearch() {
+        // a vertex half way along a side of a square, and along every other side of a hexagon
+        final Island square = new Island(new double[]{0, 5, 10, 10, 0}, new double[]{0, 0, 0, 10, 10}, 5);
+        assertFalse(ConvexDiameter.isConvex(square));
+        assertSameLength("square", square);
+
+        final Island hexagon = regular(6, 10, 0, false);
+        final double[] x = new double[9];
+        final double[] y = new double[9];
+        for (int i = 0, k = 0; i < 6; i++) {
+            x[k] = hexagon.getX(i);
+            y[k++] = hexagon.getY(i);
+            if (i % 2 == 0) {
+                x[k] = (hexagon.getX(i) + hexagon.getX(i + 1)) / 2;
+                y[k++] = (hexagon.getY(i) + hexagon.getY(i + 1)) / 2;
+            }
+        }
+        final Island split = new Island(x, y, 9);
+        assertFalse(ConvexDiameter.isConvex(split));
+        assertSameLength("hexagon", split);
+    }
+
+    @Test
+    public void nearlyConvexIslandsAreRejected() {
+        final Island octagon = regular(8, 100, 0, false);
+        final double[] x = new double[8];
+        final double[] y = new double[8];
+        for (int i = 0; i < 8; i++) {
+            x[i] = octagon.getX(i);
+            y[i] = octagon.getY(i);
+        }
+
+        // vertex 1 pulled in until its turn is a hair from straight either way
+        final double mx = (x[0] + x[2]) / 2;
+        final double my = (y[0] + y[2]) / 2;
+        for (final double t : new double[]{1e-12, 0, -1e-12, -1e-6}) {
+            final double[] moved = x.clone();
+            final double[] movedY = y.clone();
+            moved[1] = mx + t * (x[1] - mx);
+            movedY[1] = my + t * (y[1] - my);
+            assertFalse("t = " + t, ConvexDiameter.isConvex(new Island(moved, movedY, 8)));
+        }
+
+        // a pentagram turns the same way at every vertex but winds twice
+        final double[] sx = new double[5];
+        final double[] sy = new double[5];
+        for (int i = 0; i < 5; i++) {
+            sx[i] = Math.cos(4 * Math.PI * i / 5);
+            sy[i] = Math.sin(4 * Math.PI * i / 5);
+        }
+        assertFalse(ConvexDiameter.isConvex(new Island(sx, sy, 5)));
+    }
+
+    private static Island regular(final int n, final double radius, final double offset, final boolean clockwise) {
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            final double angle = offset + (clockwise ? -1 : 1) * 2 * Math.PI * i / n;
+            x[i] = radius * Math.cos(angle);
+            y[i] = radius * Math.sin(angle);
+        }
+        return new Island(x, y, n);
+    }
+
+    /**
+     * The farthest pair by the tie rule of {@link ConvexDiameter#diameter(Island)}
+     */
+    private static long bruteForce(final Island island) {
+        final int n = island.size();
+        long best = -1;
+        double bestDistance = -1;
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                final double distance = Geometry.distance(island.getX(a), island.getY(a), island.getX(b), island.getY(b));
+                // pairs come in increasing order, so a tie goes to the later pair
+                if (distance >= bestDistance) {
+                    bestDistance = distance;
+                    best = (long) a * n + b;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static void assertSameLength(final String name, final Island island) {
+        final double expected = Math.sqrt(bruteForceLengthSq(island));
+
+        final AirportCalculator general = new AirportCalculator(island);
+        general.setConvexFastPath(false);
+        assertEquals(name, expected, general.calculate().getLength(), expected * 1e-12);
+        assertEquals(name, expected, new AirportCalculator(island).calculate().getLength(), expected * 1e-12);
+    }
+
+    private static double bruteForceLengthSq(final Island island) {
+        double best = 0;
+        for (int a = 0; a < island.size(); a++) {
+            for (int b = a + 1; b < island.size(); b++)
+                best = Math.max(best, Geometry.distanceSq(island.getX(a), island.getY(a), island.getX(b), island.getY(b)));
+        }
+        return best;
+    }
+}
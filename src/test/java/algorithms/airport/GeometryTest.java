@@ -0,0 +1,115 @@
+package algorithms.airport;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GeometryTest {
+
+    @Test
+    public void orientationOnPerturbedGrid() {
+        // the classic failure of the rounded determinant: a point moved by a few ulps around
+        // the line through (12, 12) and (24, 24)
+        final double ulp = Math.ulp(0.5);
+        for (int i = 0; i < 64; i++) {
+            for (int j = 0; j < 64; j++) {
+                final double px = 0.5 + i * ulp;
+                final double py = 0.5 + j * ulp;
+                assertEquals("point " + i + ", " + j, exactOrientation(px, py, 12, 12, 24, 24),
+                        Geometry.orientation(px, py, 12, 12, 24, 24));
+            }
+        }
+    }
+
+    @Test
+    public void orientationOfCollinearPoints() {
+        assertEquals(0, Geometry.orientation(0, 0, 1, 1, 1e300, 1e300));
+        assertEquals(0, Geometry.orientation(-3, 7, 5, -1, 1e15 - 3, -1e15 + 7));
+        assertEquals(0, Geometry.orientation(1, 1, 1, 1, 2, 3));
+
+        // 0.1, 0.2 and 0.3 are not exactly collinear once rounded to doubles
+        assertEquals(exactOrientation(0.1, 0.1, 0.2, 0.2, 0.3, 0.3), Geometry.orientation(0.1, 0.1, 0.2, 0.2, 0.3, 0.3));
+    }
+
+    @Test
+    public void crossSignOfNearlyParallelSegments() {
+        final Random random = new Random(7);
+        for (int k = 0; k < 10000; k++) {
+            final double ax = random.nextDouble() * 1000;
+            final double ay = random.nextDouble() * 1000;
+            final double dx = random.nextDouble() - 0.5;
+            final double dy = random.nextDouble() - 0.5;
+            final double bx = ax + dx * 1000;
+            final double by = ay + dy * 1000;
+
+            // a second segment along almost the same direction, shifted and nudged by a few ulps
+            final double cx = random.nextDouble() * 1000;
+            final double cy = random.nextDouble() * 1000;
+            final double ex = cx + dx * 500;
+            final double ey = cy + dy * 500;
+            final double fx = ex + (random.nextInt(5) - 2) * Math.ulp(ex);
+            final double fy = ey + (random.nextInt(5) - 2) * Math.ulp(ey);
+
+            assertEquals(exactCrossSign(ax, ay, bx, by, cx, cy, fx, fy),
+                    Geometry.crossSign(ax, ay, bx, by, cx, cy, fx, fy));
+        }
+    }
+
+    @Test
+    public void crossSignOfEqualDirections() {
+        assertEquals(0, Geometry.crossSign(0, 0, 3, 4, 10, 10, 13, 14));
+        assertEquals(0, Geometry.crossSign(0.1, 0.7, 0.1, 0.7, 5, 5, 9, 2));
+        assertEquals(1, Geometry.crossSign(0, 0, 1, 0, 0, 0, -1, Double.MIN_VALUE));
+        assertEquals(-1, Geometry.crossSign(0, 0, 1, 0, 0, 0, -1, -Double.MIN_VALUE));
+    }
+
+    @Test
+    public void pointsOnSegmentsAreExact() {
+        assertTrue(Geometry.isPointOnLine(0, 0, 3, 3, 1, 1));
+        assertTrue(Geometry.isPointOnLine(0, 0, 3, 3, 3, 3));
+        assertFalse(Geometry.isPointOnLine(0, 0, 3, 3, 1, Math.nextUp(1.0)));
+        assertFalse(Geometry.isPointOnLine(0, 0, 3, 3, 4, 4));
+
+        // segments that only touch intersect but do not cross
+        assertTrue(Geometry.segmentsIntersect(0, 0, 2, 2, 1, 1, 3, 0));
+        assertFalse(Geometry.doLinesCross(0, 0, 2, 2, 1, 1, 3, 0));
+        assertTrue(Geometry.doLinesCross(0, 0, 2, 2, 0, 2, 2, 0));
+        assertFalse(Geometry.segmentsIntersect(0, 0, 2, 2, 1, Math.nextUp(1.0), 0, 2));
+    }
+
+    @Test
+    public void rayAlongNearlyParallelEdgeHitsWithinTheEdge() {
+        // the edge runs from a quarter to half way along the ray, a few ulps off its line,
+        // where the rounded intersection of the two lines lies at three quarters
+        final double ox = 4.0420313643788175;
+        final double oy = 30.184009662961852;
+        final double dx = 48.436881805507504;
+        final double dy = 46.73799676481568;
+        final double x1 = 16.151251815755693;
+        final double y1 = 41.868508854165775;
+        final double x2 = 28.26047226713257;
+        final double y2 = 53.553008045369694;
+        // the other two vertices are far along the ray on either side, so no other edge is hit first
+        final Island island = new Island(new double[]{x1, x2, 156, 142}, new double[]{y1, y2, 163, 178}, 4);
+
+        final double t = island.castRay(ox, oy, dx, dy, island.createScratch());
+        assertTrue("hit at " + t, t >= 0.25 - 1e-12 && t <= 0.5 + 1e-12);
+    }
+
+    private static int exactOrientation(final double ax, final double ay, final double bx, final double by,
+                                        final double cx, final double cy) {
+        return exactCrossSign(ax, ay, bx, by, ax, ay, cx, cy);
+    }
+
+    private static int exactCrossSign(final double ax, final double ay, final double bx, final double by,
+                                      final double cx, final double cy, final double dx, final double dy) {
+        final BigDecimal left = new BigDecimal(bx).subtract(new BigDecimal(ax))
+                .multiply(new BigDecimal(dy).subtract(new BigDecimal(cy)));
+        final BigDecimal right = new BigDecimal(by).subtract(new BigDecimal(ay))
+                .multiply(new BigDecimal(dx).subtract(new BigDecimal(cx)));
+        return left.compareTo(right);
+    }
+}
@@ -0,0 +1,128 @@
+package algorithms.airport;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IncrementalSolverTest {
+
+    @Test
+    public void editsAgreeWithFullSearch() {
+        // a star around the origin stays simple as long as its vertices keep their angle order
+        final Random random = new Random(5);
+        final int n = 40;
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            final double radius = 20 + 80 * random.nextDouble();
+            x[i] = radius * Math.cos(2 * Math.PI * i / n);
+            y[i] = radius * Math.sin(2 * Math.PI * i / n);
+        }
+
+        final IncrementalSolver solver = new IncrementalSolver(new Island(x, y, n));
+        assertSameRunway("initial", solver);
+
+        for (int edit = 0; edit < 200; edit++) {
+            final Island island = solver.getIsland();
+            final int size = island.size();
+            final int index = random.nextInt(size);
+            final double radius = 20 + 80 * random.nextDouble();
+            final int kind = random.nextInt(3);
+
+            if (kind == 0) {
+                final double angle = angleOf(island, index);
+                solver.moveVertex(index, radius * Math.cos(angle), radius * Math.sin(angle));
+            } else if (kind == 1 || size <= 8) {
+                final double from = angleOf(island, (index + size - 1) % size);
+                double to = angleOf(island, index % size);
+                if (to <= from)
+                    to += 2 * Math.PI;
+                final double angle = (from + to) / 2;
+                solver.insertVertex(index, radius * Math.cos(angle), radius * Math.sin(angle));
+            } else {
+                solver.deleteVertex(index);
+            }
+
+            assertSameRunway("edit " + edit, solver);
+        }
+    }
+
+    @Test
+    public void editsThatBreakTheRunway() {
+        final Random random = new Random(9);
+        final int n = 24;
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            final double radius = 60 + 40 * random.nextDouble();
+            x[i] = radius * Math.cos(2 * Math.PI * i / n);
+            y[i] = radius * Math.sin(2 * Math.PI * i / n);
+        }
+        final IncrementalSolver solver = new IncrementalSolver(new Island(x, y, n));
+
+        for (int edit = 0; edit < 12; edit++) {
+            final Runway before = solver.getRunway();
+            final Island island = solver.getIsland();
+
+            // dent the coast where the runway ends, so the runway no longer fits
+            final double ex = before.getX2();
+            final double ey = before.getY2();
+
+            int edge = 0;
+            for (int i = 1; i < island.size(); i++) {
+                if (edgeDistance(island, i, ex, ey) < edgeDistance(island, edge, ex, ey))
+                    edge = i;
+            }
+            final int next = (edge + 1) % island.size();
+            if (edit % 2 == 0) {
+                solver.moveVertex(edge, island.getX(edge) * 0.8, island.getY(edge) * 0.8);
+                solver.moveVertex(next, island.getX(next) * 0.8, island.getY(next) * 0.8);
+            } else {
+                // the same dent from new vertices in place of the old ones
+                for (final int i : new int[]{edge, next}) {
+                    solver.insertVertex(i, island.getX(i) * 0.8, island.getY(i) * 0.8);
+                    solver.deleteVertex(i + 1);
+                }
+            }
+
+            assertTrue("edit " + edit + " kept " + before, solver.getRunway().getLength() < before.getLength());
+            assertSameRunway("edit " + edit, solver);
+        }
+    }
+
+    private static double angleOf(final Island island, final int i) {
+        final double angle = Math.atan2(island.getY(i), island.getX(i));
+        return angle < 0 ? angle + 2 * Math.PI : angle;
+    }
+
+    private static double edgeDistance(final Island island, final int i, final double x, final double y) {
+        final int j = (i + 1) % island.size();
+        final double dx = island.getX(j) - island.getX(i);
+        final double dy = island.getY(j) - island.getY(i);
+        final double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : ((x - island.getX(i)) * dx + (y - island.getY(i)) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        return Geometry.distance(island.getX(i) + t * dx, island.getY(i) + t * dy, x, y);
+    }
+
+    private static void assertSameRunway(final String name, final IncrementalSolver solver) {
+        final Runway expected = new AirportCalculator(solver.getIsland()).calculate();
+        final Runway actual = solver.getRunway();
+        assertNotNull(name, expected);
+        assertNotNull(name, actual);
+        assertEquals(name, expected.getLength(), actual.getLength(), 0);
+        final double tolerance = 1e-9 * (expected.getLength() + 1);
+        assertTrue(name + ": " + expected + " and " + actual,
+                near(expected.getX1(), expected.getY1(), actual.getX1(), actual.getY1(), tolerance)
+                        && near(expected.getX2(), expected.getY2(), actual.getX2(), actual.getY2(), tolerance)
+                        || near(expected.getX1(), expected.getY1(), actual.getX2(), actual.getY2(), tolerance)
+                        && near(expected.getX2(), expected.getY2(), actual.getX1(), actual.getY1(), tolerance));
+    }
+
+    private static boolean near(final double x1, final double y1, final double x2, final double y2,
+                                final double tolerance) {
+        return Math.abs(x1 - x2) <= tolerance && Math.abs(y1 - y2) <= tolerance;
+    }
+}
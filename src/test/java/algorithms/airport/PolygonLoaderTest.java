@@ -0,0 +1,103 @@
+package algorithms.airport;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PolygonLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void singleRingBinaryRoundTrip() throws IOException {
+        for (final String name : new String[]{"data5", "data500"}) {
+            final Island island = PolygonLoader.load(Paths.get("data", name + ".txt"));
+            final Path file = folder.newFile(name + ".bin").toPath();
+            PolygonLoader.writeBinary(island, file);
+
+            assertEquals("a single ring is written as version 1", 1, headerInt(file, 1));
+            assertSameIsland(island, PolygonLoader.load(file));
+        }
+    }
+
+    @Test
+    public void lakesBinaryRoundTrip() throws IOException {
+        final Island island = squareWithLakes();
+        final Path file = folder.newFile("lakes.bin").toPath();
+        PolygonLoader.writeBinary(island, file);
+
+        assertEquals("lakes are written as version 2", 2, headerInt(file, 1));
+        assertEquals("the header holds the number of rings", 3, headerInt(file, 3));
+        assertSameIsland(island, PolygonLoader.load(file));
+    }
+
+    @Test
+    public void textLakesAndIslands() throws IOException {
+        final Path file = write("0 0\n10 0\n10 10\n0 10\nlake\n4 4\n6 4\n6 6\n\nisland\n20 0\n30 0\n25 3\n");
+
+        final List<Island> islands = PolygonLoader.loadArchipelago(file);
+        assertEquals(2, islands.size());
+        assertEquals(1, islands.get(0).getLakeCount());
+        assertEquals(4, islands.get(0).getRingStart(1));
+        assertEquals(7, islands.get(0).size());
+        assertEquals(0, islands.get(1).getLakeCount());
+        assertEquals(20, islands.get(1).getX(0), 0);
+
+        assertNull("an archipelago is not a single island", PolygonLoader.load(file));
+    }
+
+    @Test
+    public void leadingIslandMarkerIsIgnored() throws IOException {
+        final Island island = PolygonLoader.load(write("island\n0 0\n4 0\n0 4\n"));
+        assertEquals(3, island.size());
+    }
+
+    @Test
+    public void invalidLinesAreRejected() throws IOException {
+        assertNull(PolygonLoader.load(write("0 0\n4 0\n0 4\nlakes\n")));
+        assertNull(PolygonLoader.load(write("0 0\n4 0\n0 4\nlake 1\n")));
+        assertNull(PolygonLoader.load(write("0 0\n4 0\n0 4\n1\n")));
+    }
+
+    private static Island squareWithLakes() {
+        final Island coast = new Island(new double[]{0, 10, 10, 0}, new double[]{0, 0, 10, 10}, 4);
+        final Island first = new Island(new double[]{1, 3, 3, 1}, new double[]{1, 1, 3, 3}, 4);
+        final Island second = new Island(new double[]{6, 8, 7}, new double[]{6, 6, 8}, 3);
+        return new Island(coast, Arrays.asList(first, second));
+    }
+
+    private static void assertSameIsland(final Island expected, final Island actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getLakeCount(), actual.getLakeCount());
+        for (int r = 0; r <= expected.getLakeCount() + 1; r++)
+            assertEquals(expected.getRingStart(r), actual.getRingStart(r));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getX(i), actual.getX(i), 0);
+            assertEquals(expected.getY(i), actual.getY(i), 0);
+        }
+    }
+
+    private static int headerInt(final Path file, final int index) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN).getInt(4 * index);
+    }
+
+    private Path write(final String text) throws IOException {
+        final Path file = folder.newFile().toPath();
+        Files.write(file, Collections.singletonList(text), StandardCharsets.US_ASCII);
+        return file;
+    }
+}
@@ -0,0 +1,165 @@
+package algorithms.airport;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class RunwayCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saveAndLoadRoundTrip() throws IOException {
+        final Island[] islands = {load("data5"), load("data56"), squareWithLake()};
+        final RunwayCache cache = new RunwayCache(16);
+        final Runway[] runways = new Runway[islands.length];
+        for (int i = 0; i < islands.length; i++)
+            runways[i] = cache.calculate(new AirportCalculator(islands[i]));
+
+        final Path file = folder.getRoot().toPath().resolve("runways.cache");
+        cache.save(file);
+
+        final RunwayCache loaded = new RunwayCache(16);
+        assertEquals(islands.length, loaded.load(file));
+        assertEquals(islands.length, loaded.size());
+        for (int i = 0; i < islands.length; i++)
+            assertSameRunway(runways[i], loaded.get(islands[i]));
+        assertEquals(islands.length, loaded.getHitCount());
+        assertEquals(0, loaded.getMissCount());
+    }
+
+    @Test
+    public void singleRingVersionLoads() throws IOException {
+        final Island island = load("data56");
+        final RunwayCache cache = new RunwayCache(16);
+        final Runway runway = cache.calculate(new AirportCalculator(island));
+
+        final Path file = folder.getRoot().toPath().resolve("runways.cache");
+        cache.save(file);
+        final Path old = folder.getRoot().toPath().resolve("old.cache");
+        writeSingleRingVersion(file, old);
+
+        final RunwayCache loaded = new RunwayCache(16);
+        assertEquals(1, loaded.load(old));
+        assertSameRunway(runway, loaded.get(island));
+    }
+
+    @Test
+    public void translationInvariantRoundTrip() throws IOException {
+        final Island island = load("data56");
+        final RunwayCache cache = new RunwayCache(16, true);
+        final Runway runway = cache.calculate(new AirportCalculator(island));
+
+        final Path file = folder.getRoot().toPath().resolve("runways.cache");
+        cache.save(file);
+
+        final RunwayCache loaded = new RunwayCache(16, true);
+        assertEquals(1, loaded.load(file));
+
+        final Runway moved = loaded.get(translate(island, 1000, -250));
+        assertNotNull(moved);
+        assertEquals(runway.getX1() + 1000, moved.getX1(), 1e-9);
+        assertEquals(runway.getY1() - 250, moved.getY1(), 1e-9);
+        assertEquals(runway.getX2() + 1000, moved.getX2(), 1e-9);
+        assertEquals(runway.getY2() - 250, moved.getY2(), 1e-9);
+        assertEquals(runway.getLength(), moved.getLength(), 0);
+
+        try {
+            new RunwayCache(16).load(file);
+            fail("a translation invariant cache file must not load into a plain cache");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void rotatedAndReversedRingsHit() {
+        final Island island = load("data56");
+        final RunwayCache cache = new RunwayCache(16);
+        final Runway runway = cache.calculate(new AirportCalculator(island));
+
+        final int n = island.size();
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            final int j = Math.floorMod(7 - i, n);
+            x[i] = island.getX(j);
+            y[i] = island.getY(j);
+        }
+
+        assertSameRunway(runway, cache.get(new Island(x, y, n)));
+    }
+
+    private static Island load(final String name) {
+        try {
+            return PolygonLoader.load(Paths.get("data", name + ".txt"));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static Island squareWithLake() {
+        final Island coast = new Island(new double[]{0, 10, 10, 0}, new double[]{0, 0, 10, 10}, 4);
+        final Island lake = new Island(new double[]{1, 3, 3, 1}, new double[]{1, 1, 3, 3}, 4);
+        return new Island(coast, Arrays.asList(lake));
+    }
+
+    private static Island translate(final Island island, final double dx, final double dy) {
+        final int n = island.size();
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = island.getX(i) + dx;
+            y[i] = island.getY(i) + dy;
+        }
+        return new Island(x, y, n);
+    }
+
+    /**
+     * Rewrites a cache of single ring islands in the version 1 layout, which has no ring counts
+     */
+    private static void writeSingleRingVersion(final Path from, final Path to) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(from));
+             DataOutputStream out = new DataOutputStream(Files.newOutputStream(to))) {
+            out.writeInt(in.readInt());
+            assertEquals(2, in.readInt());
+            out.writeInt(1);
+            out.writeBoolean(in.readBoolean());
+
+            final int count = in.readInt();
+            out.writeInt(count);
+            for (int c = 0; c < count; c++) {
+                assertEquals(1, in.readInt());
+                final int n = in.readInt();
+                out.writeInt(n);
+                for (int i = 0; i < 2 * n; i++)
+                    out.writeDouble(in.readDouble());
+
+                final boolean hasRunway = in.readBoolean();
+                out.writeBoolean(hasRunway);
+                for (int i = 0; hasRunway && i < 5; i++)
+                    out.writeDouble(in.readDouble());
+            }
+        }
+    }
+
+    private static void assertSameRunway(final Runway expected, final Runway actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getX1(), actual.getX1(), 0);
+        assertEquals(expected.getY1(), actual.getY1(), 0);
+        assertEquals(expected.getX2(), actual.getX2(), 0);
+        assertEquals(expected.getY2(), actual.getY2(), 0);
+        assertEquals(expected.getLength(), actual.getLength(), 0);
+    }
+}
@@ -0,0 +1,78 @@
+package algorithms.airport;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RunwayIteratorTest {
+
+    private static final String[] FILES = {"data5", "data13", "data56", "data113", "data148", "data200"};
+
+    @Test
+    public void firstRunwaysMatchTopRunways() throws IOException {
+        for (final String name : FILES)
+            assertSameRunways(name, PolygonLoader.load(Paths.get("data", name + ".txt")), 10);
+    }
+
+    @Test
+    public void equalLengthsComeInSearchOrder() {
+        // both diagonals and all four sides tie
+        final Island square = new Island(new double[]{0, 10, 10, 0}, new double[]{0, 0, 10, 10}, 4);
+        assertSameRunways("square", square, 6);
+
+        final int n = 12;
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.cos(2 * Math.PI * i / n);
+            y[i] = Math.sin(2 * Math.PI * i / n);
+        }
+        assertSameRunways("dodecagon", new Island(x, y, n), 12);
+    }
+
+    @Test
+    public void runwaysThroughManyPairsAreReturnedOnce() {
+        // every vertex of a long side gives the same runway along it
+        final Island comb = new Island(
+                new double[]{0, 10, 20, 30, 40, 40, 30, 20, 10, 0},
+                new double[]{0, 0, 0, 0, 0, 10, 10, 10, 10, 10}, 10);
+        final List<Runway> runways = assertSameRunways("comb", comb, 8);
+
+        final double tolerance = AirportCalculator.DISTINCT_TOLERANCE * (comb.getWidth() + comb.getHeight());
+        for (int i = 0; i < runways.size(); i++) {
+            for (int j = i + 1; j < runways.size(); j++)
+                assertFalse(i + " and " + j, TopRunways.same(runways.get(i), runways.get(j), tolerance));
+        }
+    }
+
+    /**
+     * Checks that the iterator starts with the runways {@link AirportCalculator#calculate(int)} finds
+     *
+     * @return The runways from the iterator
+     */
+    private static List<Runway> assertSameRunways(final String name, final Island island, final int k) {
+        final AirportCalculator calculator = new AirportCalculator(island);
+        final List<Runway> expected = calculator.calculate(k);
+
+        final List<Runway> actual = new ArrayList<>();
+        final Iterator<Runway> iterator = calculator.runways();
+        while (iterator.hasNext() && actual.size() < k)
+            actual.add(iterator.next());
+
+        assertEquals(name, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            final String message = name + " runway " + i;
+            assertEquals(message, expected.get(i).getX1(), actual.get(i).getX1(), 0);
+            assertEquals(message, expected.get(i).getY1(), actual.get(i).getY1(), 0);
+            assertEquals(message, expected.get(i).getX2(), actual.get(i).getX2(), 0);
+            assertEquals(message, expected.get(i).getY2(), actual.get(i).getY2(), 0);
+        }
+        return actual;
+    }
+}
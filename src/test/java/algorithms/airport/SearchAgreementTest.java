@@ -0,0 +1,117 @@
+package algorithms.airport;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that every way of searching an island finds the runway the plain serial search finds
+ */
+public class SearchAgreementTest {
+
+    private static final String[] FILES = {"data5", "data13", "data56", "data113", "data148"};
+
+    @Test
+    public void parallelSearchAgrees() throws IOException {
+        for (final String name : FILES) {
+            final Island island = load(name);
+            final AirportCalculator calculator = serial(island);
+            calculator.setParallelism(4);
+            assertSameRunway(name, serial(island).calculate(), calculator.calculate());
+        }
+    }
+
+    @Test
+    public void prunedSearchAgrees() throws IOException {
+        for (final String name : FILES) {
+            final Island island = load(name);
+            final Runway expected = serial(island).calculate();
+
+            final AirportCalculator calculator = serial(island);
+            calculator.setPruning(true);
+            assertSameRunway(name, expected, calculator.calculate());
+
+            calculator.setParallelism(4);
+            assertSameRunway(name, expected, calculator.calculate());
+        }
+    }
+
+    @Test
+    public void visibilityGraphSearchAgrees() throws IOException {
+        for (final String name : FILES) {
+            final Island island = load(name);
+            final Runway expected = serial(island).calculate();
+
+            final AirportCalculator calculator = serial(island);
+            calculator.setCandidateGenerator(new VisibilityGraphGenerator());
+            assertSameRunway(name, expected, calculator.calculate());
+
+            calculator.setParallelism(4);
+            calculator.setPruning(true);
+            assertSameRunway(name, expected, calculator.calculate());
+        }
+    }
+
+    @Test
+    public void sharedPoolAndAnytimeSearchAgree() throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (final String name : FILES) {
+                final Island island = load(name);
+                final Runway expected = serial(island).calculate();
+
+                final AirportCalculator calculator = serial(island);
+                calculator.setPool(pool);
+                assertSameRunway(name, expected, calculator.calculate());
+
+                final AnytimeRunway anytime = calculator.calculateUntil(() -> false, null);
+                assertTrue(anytime.isComplete());
+                assertSameRunway(name, expected, anytime.getRunway());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void topRunwaysAgree() throws IOException {
+        for (final String name : FILES) {
+            final Island island = load(name);
+            final List<Runway> expected = serial(island).calculate(5);
+
+            final AirportCalculator calculator = serial(island);
+            calculator.setParallelism(4);
+            calculator.setPruning(true);
+            final List<Runway> actual = calculator.calculate(5);
+
+            assertEquals(name, expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++)
+                assertSameRunway(name, expected.get(i), actual.get(i));
+        }
+    }
+
+    private static AirportCalculator serial(final Island island) {
+        final AirportCalculator calculator = new AirportCalculator(island);
+        calculator.setParallelism(1);
+        return calculator;
+    }
+
+    private static Island load(final String name) throws IOException {
+        return PolygonLoader.load(Paths.get("data", name + ".txt"));
+    }
+
+    private static void assertSameRunway(final String name, final Runway expected, final Runway actual) {
+        assertNotNull(name, expected);
+        assertNotNull(name, actual);
+        assertEquals(name, expected.getX1(), actual.getX1(), 0);
+        assertEquals(name, expected.getY1(), actual.getY1(), 0);
+        assertEquals(name, expected.getX2(), actual.getX2(), 0);
+        assertEquals(name, expected.getY2(), actual.getY2(), 0);
+        assertEquals(name, expected.getLength(), actual.getLength(), 0);
+    }
+}